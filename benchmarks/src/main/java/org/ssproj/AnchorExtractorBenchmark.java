@@ -0,0 +1,85 @@
+package org.ssproj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to extract the links of a page with {@code links} anchors, one driver round trip per
+ * element ("element") against a single {@code executeScript} ("script"). Needs chromedriver on
+ * the path.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar AnchorExtractorBenchmark -p links=800
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnchorExtractorBenchmark {
+    private static final List<String> TAGS = Arrays.asList("a", "area", "link", "iframe");
+
+    @Param({"100", "800"})
+    public int links;
+
+    @Param({"element", "script"})
+    public String mode;
+
+    private File page;
+    private WebDriver driver;
+    private AnchorExtractor extractor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head>");
+        html.append("<link rel=\"canonical\" href=\"/canonical.html\">");
+        html.append("<link rel=\"stylesheet\" href=\"/style.css\">");
+        html.append("</head><body><nav>");
+        for (int i = 0; i < this.links; i++) {
+            html.append("<a href=\"/docs/page").append(i).append(".html\">page ").append(i).append("</a>\n");
+        }
+        html.append("</nav><map name=\"m\"><area shape=\"rect\" coords=\"0,0,10,10\" href=\"/area.html\"></map>");
+        html.append("</body></html>");
+
+        this.page = File.createTempFile("screen-dump-anchors", ".html");
+        Files.write(this.page.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+
+        this.driver = new ChromeDriver();
+        this.driver.get(this.page.toURI().toString());
+        this.extractor = new AnchorExtractor(this.driver, this.mode, TAGS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.driver.quit();
+        this.page.delete();
+    }
+
+    @Benchmark
+    public List<String> extract() throws InterruptedException {
+        return this.extractor.apply();
+    }
+}
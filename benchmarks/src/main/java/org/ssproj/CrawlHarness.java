@@ -0,0 +1,217 @@
+package org.ssproj;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.openqa.selenium.WebDriver;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crawls a {@link GeneratedSite} with {@link TraverserDriver} and {@link FakeWebDriver}s, without
+ * network and without a browser, and reports pages per second, visit latencies, heap use and
+ * the growth of the frontier. The same options and seed give the same site, so runs with
+ * different settings (frontier, visited set, output sink, ...) can be compared.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.ssproj.CrawlHarness --pages 5000 --fan-out 8 --render-delay 200 -t traverse.yml
+ * </pre>
+ */
+public class CrawlHarness {
+    private final TraverserContext context;
+    private final GeneratedSite site;
+    private final long screenShotLatency;
+    private final List<Sample> samples = Collections.synchronizedList(new ArrayList<>());
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private long started;
+
+    private static class Sample {
+        private final long time;
+        private final long pages;
+        private final int queued;
+        private final long visited;
+        private final long heap;
+
+        Sample(long time, long pages, int queued, long visited, long heap) {
+            this.time = time;
+            this.pages = pages;
+            this.queued = queued;
+            this.visited = visited;
+            this.heap = heap;
+        }
+    }
+
+    public CrawlHarness(TraverserContext context, GeneratedSite site, long screenShotLatency) {
+        this.context = context;
+        this.site = site;
+        this.screenShotLatency = screenShotLatency;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        final Options opts = new Options();
+        opts.addOption("t", "traverse", true, "specify traverse.yml with the settings to compare. seeds and domains are replaced.");
+        opts.addOption("pages", "pages", true, "specify maximum number of pages of the site. default is 2000.");
+        opts.addOption("fanOut", "fan-out", true, "specify links to child pages per page. default is 8.");
+        opts.addOption("depth", "depth", true, "specify levels of pages below the root. default is 4.");
+        opts.addOption("pageWeight", "page-weight", true, "specify size of each page in bytes. default is 20000.");
+        opts.addOption("renderDelay", "render-delay", true, "specify mean milliseconds to render a page. default is 100.");
+        opts.addOption("screenShotLatency", "screenshot-latency", true, "specify milliseconds to take a screen shot. default is 30.");
+        opts.addOption("seed", "seed", true, "specify seed of the site. default is 1.");
+        opts.addOption("samples", "samples", true, "specify csv file to write progress samples to.");
+
+        final CommandLine cl;
+        try {
+            cl = new DefaultParser().parse(opts, args);
+        } catch (ParseException e) {
+            new HelpFormatter().printHelp("crawl-harness", opts, true);
+            return;
+        }
+
+        final TraverserContext context;
+        if (cl.hasOption('t')) {
+            context = TraverserContext.load(cl.getOptionValue('t'));
+        } else {
+            context = new TraverserContext();
+            // no page needs time to settle in a fake browser
+            context.setInitialSleep(0);
+            context.setSleep(0);
+        }
+
+        final boolean temporaryOutput = !cl.hasOption('t');
+        if (temporaryOutput) {
+            context.setOutputDirectory(Files.createTempDirectory("screen-dump-harness").toString());
+        }
+
+        try (GeneratedSite site = new GeneratedSite(
+                Integer.parseInt(cl.getOptionValue("pages", "2000")),
+                Integer.parseInt(cl.getOptionValue("fan-out", "8")),
+                Integer.parseInt(cl.getOptionValue("depth", "4")),
+                Integer.parseInt(cl.getOptionValue("page-weight", "20000")),
+                Long.parseLong(cl.getOptionValue("render-delay", "100")),
+                Long.parseLong(cl.getOptionValue("seed", "1")))) {
+            final CrawlHarness harness = new CrawlHarness(context, site,
+                    Long.parseLong(cl.getOptionValue("screenshot-latency", "30")));
+            harness.run();
+            System.out.print(harness.report());
+            if (cl.hasOption("samples")) {
+                harness.writeSamples(new File(cl.getOptionValue("samples")));
+            }
+        } finally {
+            if (temporaryOutput) {
+                FileUtils.deleteQuietly(new File(context.getOutputDirectory()));
+            }
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        final TraverseSetting setting = this.context.getSetting();
+        setting.setSeeds(Collections.singletonList(this.site.getRoot().toString()));
+        setting.setAccessibleDomains(Collections.singletonList(this.site.getAuthority()));
+        setting.setExtractableDomains(Collections.singletonList(this.site.getAuthority()));
+        setting.setRecursively(true);
+
+        final int width = this.context.getWidth() > 0 ? this.context.getWidth() : 1280;
+        final int height = this.context.getHeight() > 0 ? this.context.getHeight() : 800;
+        // a few different screen shots, encoded before the crawl
+        final List<byte[]> screenShots = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(SyntheticScreenshots.page(width, height, i), "png", png);
+            screenShots.add(png.toByteArray());
+        }
+
+        final TraverserDriver driver = new TraverserDriver(this.context, Collections.<String>emptyList());
+        driver.setTraverserFactory(context -> new Traverser(context) {
+            @Override
+            protected WebDriver startDriver() {
+                return FakeWebDriver.create(width, height, screenShots, CrawlHarness.this.screenShotLatency);
+            }
+        });
+
+        final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        this.started = System.currentTimeMillis();
+        sampler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+        try {
+            driver.start();
+            driver.join();
+        } finally {
+            sampler.shutdownNow();
+            sampler.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        sample();
+    }
+
+    private void sample() {
+        this.samples.add(new Sample(System.currentTimeMillis() - this.started, this.context.getMetrics().snapshot().getPages(),
+                this.context.getQueue().size(), this.context.getCheck().size(), this.memory.getHeapMemoryUsage().getUsed()));
+    }
+
+    public String report() {
+        final Metrics.Snapshot snapshot = this.context.getMetrics().snapshot();
+        final Sample last = this.samples.get(this.samples.size() - 1);
+        final double seconds = last.time / 1000.0;
+
+        Sample peakQueue = last;
+        long peakHeap = 0;
+        synchronized (this.samples) {
+            for (Sample sample : this.samples) {
+                if (sample.queued > peakQueue.queued) {
+                    peakQueue = sample;
+                }
+                peakHeap = Math.max(peakHeap, sample.heap);
+            }
+        }
+
+        long collections = 0;
+        long collectionTime = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(0, collector.getCollectionCount());
+            collectionTime += Math.max(0, collector.getCollectionTime());
+        }
+
+        final LatencyHistogram visits = snapshot.getStages().get(Metrics.Stage.VISIT);
+        final StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "pages:      %d of %d in %.1f s, %.1f pages/s with %d workers%n",
+                last.pages, this.site.getPages(), seconds, seconds > 0 ? last.pages / seconds : 0.0, this.context.getConcurrency()));
+        report.append(String.format(Locale.ROOT, "visit (ms): p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                visits.getPercentile(50) / 1000.0, visits.getPercentile(90) / 1000.0, visits.getPercentile(99) / 1000.0,
+                visits.getPercentile(99.9) / 1000.0, visits.getMax() / 1000.0));
+        report.append(String.format(Locale.ROOT, "heap:       peak %d MiB sampled, %d collections in %d ms%n",
+                peakHeap / (1024 * 1024), collections, collectionTime));
+        report.append(String.format(Locale.ROOT, "frontier:   peak %d urls at %.1f s; %d urls visited (%d KiB)%n",
+                peakQueue.queued, peakQueue.time / 1000.0, last.visited, this.context.getCheck().memoryUsage() / 1024));
+        report.append(this.context.getMetrics().summary());
+        return report.toString();
+    }
+
+    public void writeSamples(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            writer.println("time_ms,pages,queued,visited,heap_bytes");
+            synchronized (this.samples) {
+                for (Sample sample : this.samples) {
+                    writer.printf(Locale.ROOT, "%d,%d,%d,%d,%d%n", sample.time, sample.pages, sample.queued, sample.visited, sample.heap);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.ssproj;
+
+import org.apache.commons.io.IOUtils;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link StubWebDriver} that loads pages over HTTP: {@code get} fetches the page, waits
+ * the time the page declares in {@link GeneratedSite#RENDER_DELAY}, and offers the anchors
+ * of the page to both link extraction modes. Screen shots take {@code screenShotLatency} ms
+ * and are picked from {@code screenShots} by url, so that they vary like real ones.
+ */
+public class FakeWebDriver extends StubWebDriver {
+    private static final Pattern ANCHOR = Pattern.compile("<a\\s[^>]*href=\"([^\"]*)\"", Pattern.CASE_INSENSITIVE);
+    private static final int TIMEOUT = 30000;
+
+    private final List<byte[]> screenShots;
+    private final long screenShotLatency;
+    private List<String> anchors = Collections.emptyList();
+
+    private FakeWebDriver(int width, int height, List<byte[]> screenShots, long screenShotLatency) {
+        super("about:blank", width, height, null);
+        this.screenShots = screenShots;
+        this.screenShotLatency = screenShotLatency;
+    }
+
+    public static WebDriver create(int width, int height, List<byte[]> screenShots, long screenShotLatency) {
+        return proxy(new FakeWebDriver(width, height, screenShots, screenShotLatency));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "get":
+                load((String) args[0]);
+                return super.invoke(proxy, method, args);
+            case "findElements":
+                return findElements(args[0].toString());
+            case "executeScript":
+                final String script = (String) args[0];
+                if (script.contains("getElementsByTagName")) {
+                    // AnchorExtractor in "script" mode
+                    return new ArrayList<>(this.anchors);
+                } else if (script.contains("__screenDumpReadiness")) {
+                    return readiness();
+                }
+                return super.invoke(proxy, method, args);
+            case "getScreenshotAs":
+                if (args[0] != OutputType.BYTES) {
+                    throw new UnsupportedOperationException("only OutputType.BYTES is supported");
+                }
+                Thread.sleep(this.screenShotLatency);
+                return this.screenShots.get(Math.floorMod(getCurrentUrl().hashCode(), this.screenShots.size()));
+            default:
+                return super.invoke(proxy, method, args);
+        }
+    }
+
+    private void load(String url) throws InterruptedException {
+        final List<String> anchors = new ArrayList<>();
+        long renderDelay = 0;
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(TIMEOUT);
+            connection.setReadTimeout(TIMEOUT);
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                // reading the body to the end keeps the connection alive for the next page
+                final String html;
+                try (InputStream input = connection.getInputStream()) {
+                    html = IOUtils.toString(input, StandardCharsets.UTF_8);
+                }
+                // like a browser, hrefs are read resolved
+                final URI base = new URI(url);
+                final Matcher matcher = ANCHOR.matcher(html);
+                while (matcher.find()) {
+                    anchors.add(base.resolve(matcher.group(1)).toString());
+                }
+                renderDelay = connection.getHeaderFieldLong(GeneratedSite.RENDER_DELAY, 0);
+            } else if (connection.getErrorStream() != null) {
+                // the error page of the browser, without links
+                try (InputStream input = connection.getErrorStream()) {
+                    IOUtils.toByteArray(input);
+                }
+            }
+        } catch (IOException | IllegalArgumentException | URISyntaxException e) {
+            throw new WebDriverException("failed to load " + url, e);
+        }
+
+        Thread.sleep(renderDelay);
+        this.anchors = anchors;
+    }
+
+    private List<WebElement> findElements(String by) {
+        if (!by.endsWith(": a")) {
+            return Collections.emptyList();
+        }
+
+        final List<WebElement> elements = new ArrayList<>(this.anchors.size());
+        for (String href : this.anchors) {
+            elements.add((WebElement) Proxy.newProxyInstance(FakeWebDriver.class.getClassLoader(), new Class<?>[] {WebElement.class},
+                    (proxy, method, args) -> "getAttribute".equals(method.getName()) && "href".equals(args[0]) ? href : null));
+        }
+        return elements;
+    }
+
+    private static Map<String, Object> readiness() {
+        final Map<String, Object> state = new HashMap<>();
+        state.put("readyState", "complete");
+        state.put("pending", 0L);
+        state.put("images", 0L);
+        state.put("quiet", Long.MAX_VALUE);
+        state.put("resources", 0L);
+        return state;
+    }
+}
@@ -0,0 +1,187 @@
+package org.ssproj;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A site served from memory on a local port, for crawls without network.
+ *
+ * Page 0 at {@code /page/0.html} is the root of a tree in which every page links to
+ * {@code fanOut} children, down to {@code depth} levels below the root and up to {@code pages}
+ * pages. Every page links back to the root and to its parent and has {@code fanOut / 2} links
+ * to random pages of the tree, so most links lead to pages that are already known. Each page
+ * is padded with text to {@code pageWeight} bytes.
+ *
+ * Every page declares in the {@code X-Render-Delay} header how many milliseconds a browser
+ * takes to render it, exponentially distributed with a mean of {@code renderDelay}, so that a
+ * few pages are much slower than the rest. Pages, links and delays depend on {@code seed} only.
+ */
+public class GeneratedSite implements Closeable {
+    public static final String RENDER_DELAY = "X-Render-Delay";
+    private static final String PREFIX = "/page/";
+    private static final String FILLER = "screen-dump generated page lorem ipsum dolor sit amet consectetur adipiscing elit ";
+
+    private final int fanOut;
+    private final int depth;
+    private final int pageWeight;
+    private final long renderDelay;
+    private final long seed;
+    private final int pages;
+    private final int[] levels;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public GeneratedSite(int pages, int fanOut, int depth, int pageWeight, long renderDelay, long seed) throws IOException {
+        this.fanOut = Math.max(1, fanOut);
+        this.depth = depth;
+        this.pageWeight = pageWeight;
+        this.renderDelay = renderDelay;
+        this.seed = seed;
+
+        // pages are numbered breadth first, so the pages within the depth are a prefix
+        int count = 1;
+        long levelSize = 1;
+        for (int level = 1; level <= depth && count < pages; level++) {
+            levelSize *= this.fanOut;
+            count = (int) Math.min(pages, count + levelSize);
+        }
+        this.pages = Math.min(pages, count);
+        this.levels = new int[this.pages];
+        for (int i = 1; i < this.pages; i++) {
+            this.levels[i] = this.levels[parent(i)] + 1;
+        }
+
+        // otherwise headers and body wait for the delayed ack of the client, some 40 ms a page;
+        // read when the first server of the JVM is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "generated-site");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return the number of pages reachable from the root
+     */
+    public int getPages() {
+        return this.pages;
+    }
+
+    /**
+     * @return host and port, as used in {@code accessibleDomains}
+     */
+    public String getAuthority() {
+        return this.server.getAddress().getAddress().getHostAddress() + ":" + this.server.getAddress().getPort();
+    }
+
+    public URL getRoot() {
+        try {
+            return new URL("http://" + getAuthority() + PREFIX + "0.html");
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int parent(int page) {
+        return (page - 1) / this.fanOut;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        int page = -1;
+        if (path.startsWith(PREFIX) && path.endsWith(".html")) {
+            try {
+                page = Integer.parseInt(path.substring(PREFIX.length(), path.length() - ".html".length()));
+            } catch (NumberFormatException e) {
+                // not a page
+            }
+        }
+
+        try {
+            if (page < 0 || page >= this.pages) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            final byte[] body = render(page).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.getResponseHeaders().add(RENDER_DELAY, String.valueOf(renderDelay(page)));
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private long renderDelay(int page) {
+        if (this.renderDelay <= 0) {
+            return 0;
+        }
+        // unlike Random, SplittableRandom mixes its seed, so neighbouring pages are independent
+        final double uniform = new SplittableRandom(this.seed * 31 + page).nextDouble();
+        return Math.round(-Math.log(1 - uniform) * this.renderDelay);
+    }
+
+    private String render(int page) {
+        final StringBuilder html = new StringBuilder(this.pageWeight + 1024);
+        html.append("<!DOCTYPE html><html><head><title>page ").append(page).append("</title></head><body>\n");
+        html.append("<h1>page ").append(page).append("</h1>\n<ul>\n");
+        link(html, 0);
+        if (page > 0) {
+            link(html, parent(page));
+        }
+        if (this.levels[page] < this.depth) {
+            for (int i = 1; i <= this.fanOut; i++) {
+                final long child = (long) page * this.fanOut + i;
+                if (child < this.pages) {
+                    link(html, (int) child);
+                }
+            }
+        }
+        final SplittableRandom random = new SplittableRandom(this.seed * 17 + page);
+        for (int i = 0; i < this.fanOut / 2; i++) {
+            link(html, random.nextInt(this.pages));
+        }
+        html.append("</ul>\n");
+
+        while (html.length() < this.pageWeight) {
+            html.append("<p>").append(FILLER).append(FILLER).append("</p>\n");
+        }
+        return html.append("</body></html>\n").toString();
+    }
+
+    private static void link(StringBuilder html, int page) {
+        html.append("<li><a href=\"").append(PREFIX).append(page).append(".html\">page ").append(page).append("</a></li>\n");
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+}
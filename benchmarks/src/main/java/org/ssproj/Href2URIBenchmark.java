@@ -0,0 +1,90 @@
+package org.ssproj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hrefs per second resolved by {@link Href2URI}, with ("apply") and without ("resolve") url
+ * canonicalization, over the kinds of hrefs found on real pages: relative and absolute paths,
+ * dot segments, queries, fragments, protocol-relative urls and non-http schemes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Href2URIBenchmark {
+    private static final int HREFS = 1024;
+    private static final String[] PATTERNS = {
+            "page%d.html",
+            "./page%d.html",
+            "../docs/page%d.html",
+            "/docs/%d/",
+            "/docs/%d/index.html",
+            "/search?q=%d&utm_source=top&page=2",
+            "/docs/page%d.html#section",
+            "#top%d",
+            "https://www.ss-proj.org/news/%d.html",
+            "http://WWW.SS-PROJ.ORG:80/news/%d.html",
+            "//cdn.ss-proj.org/assets/%d.css",
+            "mailto:info%d@ss-proj.org",
+            "javascript:void(%d)",
+            "tel:03-0000-%04d",
+    };
+
+    private Href2URI href2uri;
+    private String[] hrefs;
+
+    @Setup
+    public void setUp() throws URISyntaxException {
+        final URLCanonicalizer canonicalizer = new URLCanonicalizer(new TraverseSetting().getCanonicalization());
+        this.href2uri = new Href2URI(StubWebDriver.create("https://www.ss-proj.org/docs/guide/index.html"), canonicalizer);
+
+        final Random random = new Random(1);
+        this.hrefs = new String[HREFS];
+        for (int i = 0; i < HREFS; i++) {
+            this.hrefs[i] = String.format(PATTERNS[random.nextInt(PATTERNS.length)], random.nextInt(1000));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HREFS)
+    public int apply() {
+        int resolved = 0;
+        for (String href : this.hrefs) {
+            final URL url = this.href2uri.apply(href);
+            if (url != null) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HREFS)
+    public int resolve() {
+        int resolved = 0;
+        for (String href : this.hrefs) {
+            final URL url = this.href2uri.resolve(href);
+            if (url != null) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+}
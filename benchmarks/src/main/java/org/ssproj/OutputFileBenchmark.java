@@ -0,0 +1,86 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebDriver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to derive the output file of the current page with {@link Traverser#getOutputFile},
+ * which creates its directory and removes an earlier screen shot, for each output sink that
+ * keeps files on disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OutputFileBenchmark {
+    private static final int URLS = 4096;
+
+    @Param({"directory", "sharded"})
+    public String outputSink;
+
+    private File directory;
+    private TraverserContext context;
+    private Traverser traverser;
+    private String[] urls;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("screen-dump-output").toFile();
+        this.context = TraverserContext.load(new StringReader("outputSink: " + this.outputSink + "\n"));
+        this.context.setOutputDirectory(this.directory.getPath());
+
+        final WebDriver driver = StubWebDriver.create("about:blank");
+        this.traverser = new Traverser(this.context) {
+            @Override
+            protected WebDriver startDriver() {
+                return driver;
+            }
+        };
+        this.traverser.initDriver();
+
+        final Random random = new Random(1);
+        this.urls = new String[URLS];
+        for (int i = 0; i < URLS; i++) {
+            final String query = random.nextInt(4) == 0 ? "?page=" + random.nextInt(10) : "";
+            this.urls[i] = "https://site" + random.nextInt(8) + ".ss-proj.org/docs/" + random.nextInt(64)
+                    + "/page" + i + ".html" + query;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        this.traverser.close();
+        this.context.closeOutputSink();
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    @Benchmark
+    public File outputFile() {
+        this.traverser.getDriver().get(this.urls[this.next]);
+        this.next = (this.next + 1) % URLS;
+        return this.traverser.getOutputFile();
+    }
+}
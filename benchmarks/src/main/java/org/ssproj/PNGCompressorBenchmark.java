@@ -0,0 +1,104 @@
+package org.ssproj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the in-process quantizer with the external {@code pngquant --speed 1} path,
+ * in ms/image and in output bytes (printed at the end of each trial).
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar PNGCompressorBenchmark -p pngQuant=/usr/local/bin/pngquant
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PNGCompressorBenchmark {
+    @Param({"1280x4000"})
+    public String size;
+
+    @Param({"pngquant"})
+    public String pngQuant;
+
+    private BufferedImage image;
+    private File source;
+    private File output;
+    private PaletteQuantizer quantizer;
+    private PaletteQuantizer ditheringQuantizer;
+    private PNGCompressor compressor;
+    private long outputBytes;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final String[] dimension = this.size.split("x");
+        this.image = SyntheticScreenshots.page(Integer.parseInt(dimension[0]), Integer.parseInt(dimension[1]), 1);
+        this.source = File.createTempFile("screen-dump-source", ".png");
+        this.output = File.createTempFile("screen-dump-output", ".png");
+        ImageIO.write(this.image, "png", this.source);
+        this.quantizer = new PaletteQuantizer(256, false);
+        this.ditheringQuantizer = new PaletteQuantizer(256, true);
+        this.compressor = new PNGCompressor(this.pngQuant);
+        System.out.printf("%nsource png: %d bytes%n", this.source.length());
+    }
+
+    @TearDown(Level.Iteration)
+    public void recordSize() {
+        this.outputBytes += this.output.length();
+        this.operations++;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (this.operations > 0) {
+            System.out.printf("%noutput png: %d bytes%n", this.outputBytes / this.operations);
+        }
+        this.source.delete();
+        this.output.delete();
+    }
+
+    @Benchmark
+    public void uncompressed() throws IOException {
+        ImageIO.write(this.image, "png", this.output);
+    }
+
+    @Benchmark
+    public void javaQuantizer() throws IOException {
+        ImageIO.write(this.quantizer.apply(this.image), "png", this.output);
+    }
+
+    @Benchmark
+    public void javaQuantizerDithered() throws IOException {
+        ImageIO.write(this.ditheringQuantizer.apply(this.image), "png", this.output);
+    }
+
+    @Benchmark
+    public boolean pngQuant() throws IOException, InterruptedException {
+        // the existing path: the captured png is copied to the output and compressed in place
+        Files.copy(this.source.toPath(), this.output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return this.compressor.apply(this.output);
+    }
+}
@@ -0,0 +1,125 @@
+package org.ssproj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to encode a full-page screen shot, and to capture, stitch and encode it from viewport
+ * screen shots the way {@link ChromeTraverser} does (without its scroll wait), with
+ * {@code stitchMode} "image" (the whole page in memory, written by ImageIO) or "stream"
+ * ({@link StreamingStitcher}). The captures come from a {@link StubWebDriver}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScreenShotBenchmark {
+    private static final int VIEWPORT_HEIGHT = 800;
+    private static final int OVERLAP = 20;
+
+    @Param({"1280x4000"})
+    public String size;
+
+    @Param({"image", "stream"})
+    public String stitchMode;
+
+    private BufferedImage page;
+    private WebDriver driver;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final String[] dimension = this.size.split("x");
+        this.page = SyntheticScreenshots.page(Integer.parseInt(dimension[0]), Integer.parseInt(dimension[1]), 1);
+        this.driver = StubWebDriver.create("https://www.ss-proj.org/", this.page.getWidth(), VIEWPORT_HEIGHT, this.page);
+        this.output = File.createTempFile("screen-dump-screenshot", ".png");
+
+        // encode the viewport captures once, outside the measurement
+        stitch();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.output.delete();
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        if ("stream".equalsIgnoreCase(this.stitchMode)) {
+            final int width = this.page.getWidth();
+            final int[] row = new int[width];
+            try (PNGStreamWriter writer = new PNGStreamWriter(this.output, width, this.page.getHeight())) {
+                for (int y = 0; y < this.page.getHeight(); y++) {
+                    this.page.getRGB(0, y, width, 1, row, 0, width);
+                    writer.writeRow(row, 0, width);
+                }
+            }
+        } else {
+            ImageIO.write(this.page, "png", this.output);
+        }
+    }
+
+    @Benchmark
+    public void stitch() throws IOException {
+        final JavascriptExecutor jexec = (JavascriptExecutor) this.driver;
+        jexec.executeScript("window.scrollTo(0,0)");
+        final int innerW = this.page.getWidth();
+        final int scrollH = this.page.getHeight();
+
+        if ("stream".equalsIgnoreCase(this.stitchMode)) {
+            try (StreamingStitcher stitcher = new StreamingStitcher(this.output, innerW, scrollH, 0)) {
+                int y = 0;
+                while (scrollH > y + VIEWPORT_HEIGHT) {
+                    stitcher.append(capture(), y);
+                    y += VIEWPORT_HEIGHT - OVERLAP;
+                    jexec.executeScript("window.scrollTo(0," + y + ")");
+                }
+                stitcher.append(capture(), scrollH - VIEWPORT_HEIGHT);
+            }
+            return;
+        }
+
+        final BufferedImage image = new BufferedImage(innerW, scrollH, BufferedImage.TYPE_INT_ARGB);
+        final Graphics g = image.getGraphics();
+        try {
+            int y = 0;
+            while (scrollH > y + VIEWPORT_HEIGHT) {
+                g.drawImage(capture(), 0, y, innerW, VIEWPORT_HEIGHT, null);
+                y += VIEWPORT_HEIGHT - OVERLAP;
+                jexec.executeScript("window.scrollTo(0," + y + ")");
+            }
+            g.drawImage(capture(), 0, scrollH - VIEWPORT_HEIGHT, innerW, VIEWPORT_HEIGHT, null);
+        } finally {
+            g.dispose();
+        }
+        ImageIO.write(image, "png", this.output);
+    }
+
+    private BufferedImage capture() throws IOException {
+        return Traverser.readImage(((TakesScreenshot) this.driver).getScreenshotAs(OutputType.BYTES));
+    }
+}
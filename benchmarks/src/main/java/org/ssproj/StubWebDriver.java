@@ -0,0 +1,146 @@
+package org.ssproj;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link WebDriver} without a browser, so that benchmarks run offline. It keeps the current
+ * url, answers the scripts {@link ChromeTraverser} runs to measure the page, and returns the
+ * part of {@code page} under the viewport as the screen shot (encoded once per scroll
+ * position). Any other call does nothing and returns null.
+ *
+ * It is a proxy rather than a class so that it does not depend on the methods of a particular
+ * Selenium version. Subclasses answer more calls by overriding {@link #invoke}.
+ */
+public class StubWebDriver implements InvocationHandler {
+    private static final String HANDLE = "stub";
+
+    private final int width;
+    private final int height;
+    private final BufferedImage page;
+    private final Map<Integer, byte[]> screenShots = new HashMap<>();
+    private String currentUrl;
+    private int scrollY;
+
+    protected StubWebDriver(String url, int width, int height, BufferedImage page) {
+        this.currentUrl = url;
+        this.width = width;
+        this.height = height;
+        this.page = page;
+    }
+
+    public static WebDriver create(String url) {
+        return create(url, 1280, 800, null);
+    }
+
+    /**
+     * @param page the whole page, or null for a page as high as the window
+     */
+    public static WebDriver create(String url, int width, int height, BufferedImage page) {
+        return proxy(new StubWebDriver(url, width, height, page));
+    }
+
+    protected static WebDriver proxy(StubWebDriver handler) {
+        return (WebDriver) Proxy.newProxyInstance(StubWebDriver.class.getClassLoader(),
+                new Class<?>[] {WebDriver.class, JavascriptExecutor.class, TakesScreenshot.class}, handler);
+    }
+
+    protected String getCurrentUrl() {
+        return this.currentUrl;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "get":
+                this.currentUrl = (String) args[0];
+                this.scrollY = 0;
+                return null;
+            case "getCurrentUrl":
+                return this.currentUrl;
+            case "getWindowHandle":
+                return HANDLE;
+            case "getWindowHandles":
+                return Collections.singleton(HANDLE);
+            case "getSize":
+                return new Dimension(this.width, this.height);
+            case "window":
+                if (args != null) {
+                    // switchTo().window(handle): there is only one
+                    return null;
+                }
+                // fall through
+            case "manage":
+            case "switchTo":
+                // options, window and target locator are answered by this handler as well
+                return Proxy.newProxyInstance(StubWebDriver.class.getClassLoader(), new Class<?>[] {method.getReturnType()}, this);
+            case "executeScript":
+                return executeScript((String) args[0]);
+            case "getScreenshotAs":
+                return getScreenshotAs((OutputType<?>) args[0]);
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "StubWebDriver(" + this.currentUrl + ")";
+            default:
+                return method.getReturnType().isInstance(proxy) ? proxy : null;
+        }
+    }
+
+    private Object executeScript(String script) {
+        if (script.startsWith("window.scrollTo(")) {
+            final String[] position = script.substring("window.scrollTo(".length(), script.length() - 1).split(",");
+            this.scrollY = Math.max(0, Math.min(Integer.parseInt(position[1].trim()), getPageHeight() - this.height));
+            return null;
+        } else if (script.contains("innerHeight")) {
+            return (long) this.height;
+        } else if (script.contains("innerWidth")) {
+            return (long) this.width;
+        } else if (script.contains("scrollHeight")) {
+            return (long) getPageHeight();
+        } else if (script.contains("devicePixelRatio")) {
+            return 1L;
+        }
+        return null;
+    }
+
+    private int getPageHeight() {
+        return this.page != null ? this.page.getHeight() : this.height;
+    }
+
+    private Object getScreenshotAs(OutputType<?> type) {
+        if (type != OutputType.BYTES) {
+            throw new UnsupportedOperationException("only OutputType.BYTES is supported");
+        }
+
+        return this.screenShots.computeIfAbsent(this.scrollY, y -> {
+            final BufferedImage viewport = this.page != null
+                    ? this.page.getSubimage(0, y, Math.min(this.width, this.page.getWidth()), Math.min(this.height, this.page.getHeight()))
+                    : SyntheticScreenshots.page(this.width, this.height, 1);
+            final ByteArrayOutputStream png = new ByteArrayOutputStream();
+            try {
+                ImageIO.write(viewport, "png", png);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return png.toByteArray();
+        });
+    }
+}
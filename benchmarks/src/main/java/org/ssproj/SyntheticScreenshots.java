@@ -0,0 +1,47 @@
+package org.ssproj;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Generates screen shot like images: a gradient header, anti-aliased text and a photo area.
+ */
+public class SyntheticScreenshots {
+    public static BufferedImage page(int width, int height, long seed) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+
+            g.setPaint(new GradientPaint(0, 0, new Color(0x1f4e79), width, 120, new Color(0x9dc3e6)));
+            g.fillRect(0, 0, width, Math.min(120, height));
+
+            g.setColor(new Color(0x333333));
+            for (int y = 160; y < height; y += 22) {
+                g.drawString("screen-dump synthetic page line " + y + " lorem ipsum dolor sit amet", 24, y);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        final Random random = new Random(seed);
+        final int photoWidth = Math.min(width / 3, 480);
+        final int photoHeight = Math.min(height / 4, 320);
+        final int left = width - photoWidth - 24;
+        final int top = Math.min(160, height - photoHeight);
+        for (int y = 0; y < photoHeight; y++) {
+            for (int x = 0; x < photoWidth; x++) {
+                final int base = (x * 255 / photoWidth) << 16 | (y * 255 / photoHeight) << 8 | 0x80;
+                image.setRGB(left + x, top + y, 0xff000000 | (base ^ random.nextInt(0x10) * 0x010101));
+            }
+        }
+
+        return image;
+    }
+}
@@ -0,0 +1,127 @@
+package org.ssproj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter calls per second of {@link TraverseSetting#allowsForExtraction} against the list
+ * scans it replaced, and of {@link TraverseSetting#allowsForAccess}, over a mix of accepted
+ * and rejected links.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class URLFilterBenchmark {
+    private static final int URLS = 1024;
+
+    private TraverseSetting setting;
+    private URL[] urls;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        final List<String> domains = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            domains.add("site" + i + ".ss-proj.org");
+        }
+        domains.add("demo.ss-proj.org:8080");
+
+        final List<String> excludePaths = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            excludePaths.add("/archive/" + i + "/");
+        }
+        excludePaths.addAll(Arrays.asList("/.voice/", "/mobile/", "/#/kana/"));
+
+        this.setting = new TraverseSetting();
+        this.setting.setAccessibleDomains(domains);
+        this.setting.setExtractableDomains(domains);
+        this.setting.setExcludePaths(excludePaths);
+        this.setting.setAllowSuffixes(Arrays.asList("/", ".html", ".xml"));
+
+        final String[] hosts = {"site3.ss-proj.org", "site17.ss-proj.org", "demo.ss-proj.org:8080", "www.google.com"};
+        final String[] paths = {"/docs/page%d.html", "/archive/%d/index.html", "/mobile/%d/", "/img/%d.png", "/board/%d/"};
+        final Random random = new Random(1);
+        this.urls = new URL[URLS];
+        for (int i = 0; i < URLS; i++) {
+            final String path = String.format(paths[random.nextInt(paths.length)], random.nextInt(100));
+            this.urls[i] = new URL("http://" + hosts[random.nextInt(hosts.length)] + path);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int filter() {
+        int allowed = 0;
+        for (URL url : this.urls) {
+            if (this.setting.allowsForExtraction(url)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int access() {
+        int allowed = 0;
+        for (URL url : this.urls) {
+            if (this.setting.allowsForAccess(url)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URLS)
+    public int listScan() {
+        int allowed = 0;
+        for (URL url : this.urls) {
+            if (listScan(url)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * The checks as they were before the filter was compiled, with the empty exclude list
+     * fixed so that both variants accept the same urls.
+     */
+    private boolean listScan(URL url) {
+        final List<String> domains = this.setting.getExtractableDomains();
+        if (!domains.contains(url.getHost()) && !domains.contains(url.getHost() + ":" + url.getPort())) {
+            return false;
+        }
+        for (String path : this.setting.getExcludePaths()) {
+            if (url.getPath().startsWith(path)) {
+                return false;
+            }
+        }
+
+        final String path = url.getPath();
+        final int lastSlash = path.lastIndexOf('/');
+        final int lastDot = path.lastIndexOf('.');
+        final String suffix = lastDot >= 0 && lastDot > lastSlash ? path.substring(lastDot) : (path.endsWith("/") ? "/" : null);
+        return this.setting.getAllowSuffixes().contains(suffix);
+    }
+}
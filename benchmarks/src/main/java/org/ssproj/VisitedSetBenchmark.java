@@ -0,0 +1,98 @@
+package org.ssproj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of {@link TraverserContext#addCheck(URL)} and {@link TraverserContext#containsCheck(URL)}
+ * on a context shared by all benchmark threads. Every thread adds links of its own; after the
+ * first pass most adds are duplicates, as in a crawl where most links lead to known pages.
+ * Half of the lookups hit urls visited before the iteration.
+ *
+ * <pre>
+ * for t in 1 2 4 8 16 32; do java -jar target/benchmarks.jar VisitedSetBenchmark -t $t; done
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VisitedSetBenchmark {
+    private static final int VISITED = 1 << 16;
+    private static final int LINKS = 1 << 14;
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    @Param({"string", "fingerprint"})
+    public String visitedSet;
+
+    private TraverserContext context;
+    private URL[] visited;
+
+    @State(Scope.Thread)
+    public static class Links {
+        private URL[] urls;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws MalformedURLException {
+            final int thread = THREADS.getAndIncrement();
+            this.urls = new URL[LINKS];
+            for (int i = 0; i < LINKS; i++) {
+                this.urls[i] = new URL("https://site" + (i % 8) + ".ss-proj.org/t" + thread + "/docs/page" + i + ".html");
+            }
+        }
+
+        URL next() {
+            final URL url = this.urls[this.next];
+            this.next = (this.next + 1) % LINKS;
+            return url;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws MalformedURLException {
+        this.visited = new URL[VISITED];
+        for (int i = 0; i < VISITED; i++) {
+            this.visited[i] = new URL("https://site" + (i % 8) + ".ss-proj.org/archive/" + (i / 100) + "/page" + i + ".html");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws IOException {
+        this.context = TraverserContext.load(new StringReader("visitedSet: " + this.visitedSet + "\n"));
+        for (URL url : this.visited) {
+            this.context.addCheck(url);
+        }
+    }
+
+    @Benchmark
+    public boolean add(Links links) {
+        return this.context.addCheck(links.next());
+    }
+
+    @Benchmark
+    public boolean contains(Links links) {
+        final URL url = links.next();
+        // every other lookup is a hit
+        return this.context.containsCheck((links.next & 1) == 0 ? this.visited[links.next] : url);
+    }
+}
@@ -1,8 +1,10 @@
 package org.ssproj;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,17 +12,57 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 
+/**
+ * Extracts link targets from the current page.
+ *
+ * The "element" mode asks the driver for every element and then for each attribute, one round
+ * trip per link. The "script" mode collects the resolved urls of all requested tags with a
+ * single {@code executeScript} call. {@code link} elements are only followed for the rel values
+ * in {@link #LINK_RELS}.
+ */
 public class AnchorExtractor {
     private final static Logger LOGGER = LoggerFactory.getLogger(AnchorExtractor.class);
     private static final long STALE_ELEMENT_REFERENCE_WAIT = 5000;
+    private static final String LINK_RELS = "alternate|canonical|next|prev";
+    private static final Pattern LINK_REL_PATTERN = Pattern.compile("(^|\\s)(" + LINK_RELS + ")(\\s|$)", Pattern.CASE_INSENSITIVE);
+    private static final String SCRIPT =
+            "var tags = arguments[0], rels = new RegExp(arguments[1], 'i'), hrefs = [];" +
+            "for (var t = 0; t < tags.length; t++) {" +
+            "  var tag = tags[t].toLowerCase(), elements = document.getElementsByTagName(tag);" +
+            "  for (var i = 0; i < elements.length; i++) {" +
+            "    var e = elements[i];" +
+            "    if (tag == 'link' && !rels.test(e.rel || '')) continue;" +
+            "    var url = tag == 'iframe' || tag == 'frame' ? e.src : e.href;" +
+            "    if (typeof url == 'string' && url) hrefs.push(url);" +
+            "  }" +
+            "}" +
+            "return hrefs;";
+
     private WebDriver driver;
+    private final String mode;
+    private final List<String> tags;
 
     public AnchorExtractor(WebDriver driver) {
+        this(driver, "element", Collections.singletonList("a"));
+    }
+
+    public AnchorExtractor(WebDriver driver, String mode, List<String> tags) {
         this.driver = driver;
+        this.mode = mode;
+        this.tags = tags;
     }
 
     public List<String> apply() throws InterruptedException {
+        if ("script".equalsIgnoreCase(this.mode)) {
+            try {
+                return applyScript();
+            } catch (WebDriverException e) {
+                LOGGER.debug("failed to extract anchors by script; falling back to elements", e);
+            }
+        }
+
         int retryCount = 0;
 
         for (;;) {
@@ -40,16 +82,44 @@ public class AnchorExtractor {
         return Collections.emptyList();
     }
 
+    private List<String> applyScript() {
+        final Object result = ((JavascriptExecutor) this.driver).executeScript(SCRIPT, this.tags, LINK_RELS);
+        if (!(result instanceof List)) {
+            throw new WebDriverException("unexpected result: " + result);
+        }
+
+        final List<?> values = (List<?>) result;
+        final ArrayList<String> hrefList = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value instanceof String && !((String) value).isEmpty()) {
+                hrefList.add((String) value);
+            }
+        }
+
+        return hrefList;
+    }
+
     private List<String> applyImpl() {
         ArrayList<String> hrefList = new ArrayList<>();
 
-        for (WebElement element : this.driver.findElements(By.tagName("a"))) {
-            final String href = element.getAttribute("href");
-            if (href == null || href.isEmpty()) {
-                continue;
-            }
+        for (String tag : this.tags) {
+            final String attribute = tag.equalsIgnoreCase("iframe") || tag.equalsIgnoreCase("frame") ? "src" : "href";
+            final boolean link = tag.equalsIgnoreCase("link");
+            for (WebElement element : this.driver.findElements(By.tagName(tag))) {
+                if (link) {
+                    final String rel = element.getAttribute("rel");
+                    if (rel == null || !LINK_REL_PATTERN.matcher(rel).find()) {
+                        continue;
+                    }
+                }
 
-            hrefList.add(href);
+                final String href = element.getAttribute(attribute);
+                if (href == null || href.isEmpty()) {
+                    continue;
+                }
+
+                hrefList.add(href);
+            }
         }
 
         return hrefList;
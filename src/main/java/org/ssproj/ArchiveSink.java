@@ -0,0 +1,210 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Appends screen shots to large zip segments ({@code captures-00001.zip}, ...) instead of
+ * leaving one file per url. Captures are staged under {@code .staging} in the
+ * {@link DirectorySink} layout until they are compressed, then stored uncompressed (png data
+ * is deflated already) under that same name, and the staged file is removed.
+ *
+ * {@code captures.idx} lists every entry as {@code name, segment, offset of the local header,
+ * size}, so entries can be read back even from a segment whose central directory was never
+ * written because the process died. Duplicate captures only get an index line with the
+ * location of the original.
+ */
+public class ArchiveSink implements OutputSink {
+    private final static Logger LOGGER = LoggerFactory.getLogger(ArchiveSink.class);
+    private static final String STAGING_DIRECTORY = ".staging";
+    private static final String INDEX_FILE = "captures.idx";
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("captures-(\\d+)\\.zip");
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final File directory;
+    private final long segmentSize;
+    private final DirectorySink staging;
+    private final Writer index;
+    // names in the current segment, with their location
+    private final Map<String, String> segmentEntries = new HashMap<>();
+    private int segment;
+    private String segmentName;
+    private CountingOutputStream counter;
+    private ZipOutputStream output;
+
+    public ArchiveSink(File directory, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.staging = new DirectorySink(new File(directory, STAGING_DIRECTORY));
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException(directory + ": failed to create output directory");
+        }
+
+        this.segment = lastSegment();
+        this.index = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, INDEX_FILE), true), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public File getFile(URL url) {
+        return this.staging.getFile(url);
+    }
+
+    @Override
+    public synchronized String commit(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try {
+            return store(file);
+        } finally {
+            if (file.exists() && !file.delete()) {
+                LOGGER.warn("{}: failed to remove staged screen shot", file);
+            }
+        }
+    }
+
+    private String store(File file) throws IOException {
+        final String name = entryName(file);
+        // captured again, e.g. the viewports done before the browser was lost; a zip cannot hold
+        // the name twice, so the entry written first stays
+        final String written = this.segmentEntries.get(name);
+        if (written != null) {
+            LOGGER.debug("{}: already in {}", name, this.segmentName);
+            return written;
+        }
+
+        final byte[] data = Files.readAllBytes(file.toPath());
+        if (this.output != null && !this.segmentEntries.isEmpty() && this.counter.getCount() + data.length > this.segmentSize) {
+            closeSegment();
+        }
+        if (this.output == null) {
+            openSegment();
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        entry.setTime(file.lastModified());
+
+        final long offset = this.counter.getCount();
+        this.output.putNextEntry(entry);
+        this.output.write(data);
+        this.output.closeEntry();
+
+        final String location = this.segmentName + "\t" + offset + "\t" + data.length;
+        // the entry reaches the segment before its index line, so no line points past the end
+        this.output.flush();
+        this.index.write(name + "\t" + location + "\n");
+        this.index.flush();
+        this.segmentEntries.put(name, location);
+        return location;
+    }
+
+    /**
+     * Adds an index line pointing at the entry of the original; the duplicate is not stored.
+     */
+    @Override
+    public synchronized void commitDuplicate(File file, String original) throws IOException {
+        this.index.write(entryName(file) + "\t" + original + "\n");
+        this.index.flush();
+        if (!file.delete()) {
+            LOGGER.warn("{}: failed to remove staged screen shot", file);
+        }
+    }
+
+    private String entryName(File file) {
+        final String base = this.staging.getDirectory().getPath() + File.separator;
+        final String path = file.getPath();
+        final String name = path.startsWith(base) ? path.substring(base.length()) : file.getName();
+        return name.replace(File.separatorChar, '/');
+    }
+
+    private void openSegment() throws IOException {
+        this.segment++;
+        this.segmentName = String.format("captures-%05d.zip", this.segment);
+        this.counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(new File(this.directory, this.segmentName)), BUFFER_SIZE));
+        this.output = new ZipOutputStream(this.counter);
+        this.segmentEntries.clear();
+    }
+
+    private void closeSegment() throws IOException {
+        this.output.close();
+        this.output = null;
+        this.index.flush();
+    }
+
+    private int lastSegment() {
+        int last = 0;
+        final String[] names = this.directory.list();
+        if (names != null) {
+            for (String name : names) {
+                final Matcher matcher = SEGMENT_PATTERN.matcher(name);
+                if (matcher.matches()) {
+                    last = Math.max(last, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (this.output != null) {
+                closeSegment();
+            }
+        } finally {
+            this.index.close();
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        long getCount() {
+            return this.count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the resident memory of the browsers by summing the RSS of every process started
+ * below this JVM (driver services and browsers), read from {@code /proc}. Selenium does not
+ * tell which processes belong to which driver, so the limit is checked against the average per
+ * running driver, and only one driver is recycled per cool-down period so that the memory it
+ * frees is seen before the next one is picked.
+ *
+ * Where {@code /proc} is not available the limit is never exceeded.
+ */
+public class BrowserMemory {
+    private final static Logger LOGGER = LoggerFactory.getLogger(BrowserMemory.class);
+    private static final File PROC = new File("/proc");
+    private static final long MEASURE_INTERVAL = 1000;
+    private static final long COOL_DOWN = 10000;
+
+    private final long limit;
+    private final boolean supported;
+    private final String pid;
+    private long measured;
+    private long residentSize;
+    private long coolDownUntil;
+
+    /**
+     * @param limit average resident bytes per driver
+     */
+    public BrowserMemory(long limit) {
+        this.limit = limit;
+        this.pid = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+        this.supported = new File(PROC, this.pid + "/stat").exists();
+        if (!this.supported) {
+            LOGGER.warn("browser memory cannot be measured on this platform, the memory limit is ignored");
+        }
+    }
+
+    /**
+     * @return true if the browsers use more than the limit per driver on average; the caller is
+     *     expected to recycle its driver
+     */
+    public synchronized boolean exceeds(int drivers) {
+        if (!this.supported || drivers <= 0) {
+            return false;
+        }
+
+        final long now = System.currentTimeMillis();
+        if (now < this.coolDownUntil) {
+            return false;
+        }
+        if (now - this.measured >= MEASURE_INTERVAL) {
+            this.residentSize = residentSize();
+            this.measured = now;
+        }
+        if (this.residentSize / drivers <= this.limit) {
+            return false;
+        }
+
+        LOGGER.info("browsers use {} MiB for {} drivers", this.residentSize / (1024 * 1024), drivers);
+        this.coolDownUntil = now + COOL_DOWN;
+        this.measured = 0;
+        return true;
+    }
+
+    private long residentSize() {
+        final Map<String, List<String>> children = new HashMap<>();
+        final String[] pids = PROC.list();
+        if (pids == null) {
+            return 0;
+        }
+        for (String pid : pids) {
+            if (!Character.isDigit(pid.charAt(0))) {
+                continue;
+            }
+            final String parent = parentOf(pid);
+            if (parent != null) {
+                children.computeIfAbsent(parent, key -> new ArrayList<>()).add(pid);
+            }
+        }
+
+        long total = 0;
+        final Deque<String> pending = new ArrayDeque<>(children.getOrDefault(this.pid, Collections.<String>emptyList()));
+        while (!pending.isEmpty()) {
+            final String pid = pending.pop();
+            total += residentSizeOf(pid);
+            pending.addAll(children.getOrDefault(pid, Collections.<String>emptyList()));
+        }
+        return total;
+    }
+
+    private static String parentOf(String pid) {
+        try {
+            // the command name in parentheses may contain spaces, the fields after it do not
+            final String stat = new String(Files.readAllBytes(new File(PROC, pid + "/stat").toPath()), StandardCharsets.ISO_8859_1);
+            final String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return fields[1];
+        } catch (IOException | RuntimeException e) {
+            // exited meanwhile
+            return null;
+        }
+    }
+
+    private static long residentSizeOf(String pid) {
+        try {
+            for (String line : Files.readAllLines(new File(PROC, pid + "/status").toPath(), StandardCharsets.ISO_8859_1)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // exited meanwhile
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,68 @@
+package org.ssproj;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Rules for {@link URLCanonicalizer}. Parameter names are regular expressions matched
+ * case-insensitively against the whole name.
+ */
+public class CanonicalizationSetting {
+    private boolean lowercaseHost = true;
+    private boolean stripDefaultPort = true;
+    private List<String> dropQueryParameters = Collections.emptyList();
+    private boolean sortQueryParameters = false;
+    private List<String> sessionIdParameters = Collections.singletonList("jsessionid");
+    private String trailingSlash = "keep";
+
+    public boolean getLowercaseHost() {
+        return this.lowercaseHost;
+    }
+
+    public void setLowercaseHost(boolean lowercaseHost) {
+        this.lowercaseHost = lowercaseHost;
+    }
+
+    public boolean getStripDefaultPort() {
+        return this.stripDefaultPort;
+    }
+
+    public void setStripDefaultPort(boolean stripDefaultPort) {
+        this.stripDefaultPort = stripDefaultPort;
+    }
+
+    public List<String> getDropQueryParameters() {
+        return this.dropQueryParameters;
+    }
+
+    public void setDropQueryParameters(List<String> dropQueryParameters) {
+        this.dropQueryParameters = dropQueryParameters;
+    }
+
+    public boolean getSortQueryParameters() {
+        return this.sortQueryParameters;
+    }
+
+    public void setSortQueryParameters(boolean sortQueryParameters) {
+        this.sortQueryParameters = sortQueryParameters;
+    }
+
+    public List<String> getSessionIdParameters() {
+        return this.sessionIdParameters;
+    }
+
+    public void setSessionIdParameters(List<String> sessionIdParameters) {
+        this.sessionIdParameters = sessionIdParameters;
+    }
+
+    /**
+     * @return "keep", "add" (to paths whose last segment has no extension or parameters) or "remove"
+     */
+    public String getTrailingSlash() {
+        return this.trailingSlash;
+    }
+
+    public void setTrailingSlash(String trailingSlash) {
+        this.trailingSlash = trailingSlash;
+    }
+}
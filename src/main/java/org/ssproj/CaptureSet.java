@@ -0,0 +1,199 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The screen shots of one run, keyed by their {@link DirectorySink#relativePath} so that runs
+ * written by different output sinks can be matched by url. The layout is detected from the
+ * index files: {@code captures.idx} (zip), {@code index.tsv} (sharded) or none (directory).
+ */
+public class CaptureSet {
+    private final static Logger LOGGER = LoggerFactory.getLogger(CaptureSet.class);
+    private static final String ARCHIVE_INDEX_FILE = "captures.idx";
+    private static final String SHARDED_INDEX_FILE = "index.tsv";
+    private static final String PNG_EXTENSION = ".png";
+    private static final int SHA1_HEX_LENGTH = 40;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    private final File directory;
+    private final Map<String, Capture> captures = new TreeMap<>();
+
+    public interface Capture {
+        byte[] read() throws IOException;
+    }
+
+    private CaptureSet(File directory) {
+        this.directory = directory;
+    }
+
+    public static CaptureSet load(File directory) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IOException(directory + ": not a directory");
+        }
+
+        final CaptureSet set = new CaptureSet(directory);
+        if (new File(directory, ARCHIVE_INDEX_FILE).exists()) {
+            set.loadArchive();
+        } else if (new File(directory, SHARDED_INDEX_FILE).exists()) {
+            set.loadSharded();
+        } else {
+            set.loadDirectory();
+        }
+        return set;
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    public Map<String, Capture> getCaptures() {
+        return this.captures;
+    }
+
+    public int size() {
+        return this.captures.size();
+    }
+
+    private void loadArchive() throws IOException {
+        // a url committed twice (e.g. by a resumed crawl) keeps its latest entry
+        for (String[] fields : readIndex(new File(this.directory, ARCHIVE_INDEX_FILE), 4)) {
+            final File segment = new File(this.directory, fields[1]);
+            final long offset = Long.parseLong(fields[2]);
+            final int size = Integer.parseInt(fields[3]);
+            this.captures.put(fields[0], () -> readEntry(segment, offset, size));
+        }
+    }
+
+    private void loadSharded() throws IOException {
+        for (String[] fields : readIndex(new File(this.directory, SHARDED_INDEX_FILE), 2)) {
+            final URL url;
+            try {
+                url = new URL(fields[1]);
+            } catch (MalformedURLException e) {
+                LOGGER.warn("{}: malformed url in output index", fields[1]);
+                continue;
+            }
+
+            this.captures.put(shardedKey(fields[0], url), new FileCapture(new File(this.directory, fields[0])));
+        }
+
+        // the index is written before the screen shot is saved, so a page that failed is listed
+        this.captures.values().removeIf(capture -> !((FileCapture) capture).exists());
+    }
+
+    /**
+     * @return the relative path of {@code url} with the suffix of the sharded file name, e.g.
+     *     {@code @375x667} in {@code ab/cd/abcd...@375x667.png}, as a directory sink names it
+     */
+    private static String shardedKey(String name, URL url) {
+        final String path = DirectorySink.relativePath(url);
+        final int start = name.lastIndexOf('/') + 1 + SHA1_HEX_LENGTH;
+        final int end = name.length() - PNG_EXTENSION.length();
+        if (start >= end || !name.endsWith(PNG_EXTENSION)) {
+            return path;
+        }
+        return path.substring(0, path.length() - PNG_EXTENSION.length()) + name.substring(start, end) + PNG_EXTENSION;
+    }
+
+    private void loadDirectory() {
+        final Deque<File> directories = new ArrayDeque<>();
+        directories.push(this.directory);
+        final String base = this.directory.getPath() + File.separator;
+        while (!directories.isEmpty()) {
+            final File[] files = directories.pop().listFiles();
+            if (files == null) {
+                continue;
+            }
+
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    directories.push(file);
+                } else if (file.getName().endsWith(".png")) {
+                    final String name = file.getPath().substring(base.length()).replace(File.separatorChar, '/');
+                    this.captures.put(name, new FileCapture(file));
+                }
+            }
+        }
+    }
+
+    private static List<String[]> readIndex(File file, int fields) throws IOException {
+        final List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] values = line.split("\t");
+                if (values.length != fields) {
+                    LOGGER.warn("{}: malformed index line: {}", file, line);
+                    continue;
+                }
+                lines.add(values);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Reads a stored entry through its local header, which does not need the central directory.
+     */
+    private static byte[] readEntry(File segment, long offset, int size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(segment, "r")) {
+            final byte[] header = new byte[LOCAL_HEADER_SIZE];
+            file.seek(offset);
+            file.readFully(header);
+            if (littleEndian(header, 0, 4) != LOCAL_HEADER_SIGNATURE) {
+                throw new IOException(segment + ": no zip entry at offset " + offset);
+            }
+
+            final int nameLength = littleEndian(header, 26, 2);
+            final int extraLength = littleEndian(header, 28, 2);
+            final byte[] data = new byte[size];
+            file.seek(offset + LOCAL_HEADER_SIZE + nameLength + extraLength);
+            file.readFully(data);
+            return data;
+        }
+    }
+
+    private static int littleEndian(byte[] bytes, int offset, int length) {
+        int value = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    private static class FileCapture implements Capture {
+        private final File file;
+
+        FileCapture(File file) {
+            this.file = file;
+        }
+
+        boolean exists() {
+            return this.file.exists();
+        }
+
+        @Override
+        public byte[] read() throws IOException {
+            return Files.readAllBytes(this.file.toPath());
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package org.ssproj;
 
 import org.openqa.selenium.JavascriptExecutor;
-import org.openqa.selenium.OutputType;
-import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -34,15 +31,23 @@ public class ChromeTraverser extends Traverser {
         int innerH = Integer.parseInt(String.valueOf(jexec.executeScript("return window.innerHeight")));
         int innerW =Integer.parseInt(String.valueOf(jexec.executeScript("return window.innerWidth")));
         int scrollH = Integer.parseInt(String.valueOf(jexec.executeScript("return document.documentElement.scrollHeight")));
-        int devicePixelRatio = Integer.parseInt(String.valueOf(jexec.executeScript("return window.devicePixelRatio")));
+        double devicePixelRatio = Double.parseDouble(String.valueOf(jexec.executeScript("return window.devicePixelRatio")));
 
         //スクロールを行うかの判定
+        final Metrics metrics = getContext().getMetrics();
+        final long start = metrics.start();
+        // asked once: the sharded sink indexes every file it hands out
+        final File outputFile;
         if (innerH > scrollH) {
-            BufferedImage img = ImageIO.read(((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.FILE));
-            ImageIO.write(img, "png", getOutputFile());
+            outputFile = getOutputFile();
+            BufferedImage img = takeScreenShotImage();
+            writeImage(img, outputFile);
+        } else if ("stream".equalsIgnoreCase(getContext().getSetting().getStitchMode())) {
+            saveStreamingScreenShot(jexec, innerW, innerH, scrollH, devicePixelRatio);
+            return;
         } else {
             //イメージを扱うための準備
-            BufferedImage img = new BufferedImage(innerW * devicePixelRatio, scrollH * devicePixelRatio, BufferedImage.TYPE_INT_ARGB);
+            BufferedImage img = new BufferedImage(scale(innerW, devicePixelRatio), scale(scrollH, devicePixelRatio), BufferedImage.TYPE_INT_ARGB);
             Graphics g = img.getGraphics();
 
             // int scrollableH = scrollH;
@@ -51,10 +56,10 @@ public class ChromeTraverser extends Traverser {
 
             //スクロールしながらなんどもイメージを結合していく
             while (scrollH > y + innerH) {
-                BufferedImage imageParts = ImageIO.read(((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.FILE));
+                BufferedImage imageParts = takeScreenShotImage();
                 //ImageIO.write(imageParts, "PNG", getOutputFile(url, i));
 
-                g.drawImage(imageParts, 0, y * devicePixelRatio, innerW * devicePixelRatio, innerH * devicePixelRatio, null);
+                g.drawImage(imageParts, 0, scale(y, devicePixelRatio), scale(innerW, devicePixelRatio), scale(innerH, devicePixelRatio), null);
                 y += innerH - 20;
                 i++;
                 jexec.executeScript("window.scrollTo(0," + y + ")");
@@ -67,15 +72,54 @@ public class ChromeTraverser extends Traverser {
             }
 
             //一番下まで行ったときは、下から埋めるように貼り付け
-            BufferedImage imageParts = ImageIO.read(((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.FILE));
+            BufferedImage imageParts = takeScreenShotImage();
             //ImageIO.write(imageParts, "PNG", getOutputFile(url, i));
-            g.drawImage(imageParts, 0, (scrollH - innerH) * devicePixelRatio, innerW * devicePixelRatio, innerH * devicePixelRatio, null);
+            g.drawImage(imageParts, 0, scale(scrollH - innerH, devicePixelRatio), scale(innerW, devicePixelRatio), scale(innerH, devicePixelRatio), null);
 
-            ImageIO.write(img, "png", getOutputFile());
+            outputFile = getOutputFile();
+            writeImage(img, outputFile);
         }
+        metrics.record(Metrics.Stage.STITCH, start);
 
-        File outputFile = getOutputFile();
-        compressPng(outputFile);
-        LOGGER.debug("saved screen shot: {}", outputFile);
+        postProcess(outputFile, null);
+    }
+
+    /**
+     * Encodes each scroll segment into the output as soon as it is captured, so memory depends
+     * on the viewport and not on the page height.
+     */
+    private void saveStreamingScreenShot(JavascriptExecutor jexec, int innerW, int innerH, int scrollH, double devicePixelRatio) throws IOException, InterruptedException {
+        final Metrics metrics = getContext().getMetrics();
+        final long start = metrics.start();
+        final StreamingStitcher stitcher = new StreamingStitcher(getOutputFile(), scale(innerW, devicePixelRatio),
+                scale(scrollH, devicePixelRatio), getContext().getSetting().getMaxImageHeight());
+        try {
+            int y = 0;
+            while (scrollH > y + innerH) {
+                stitcher.append(takeScreenShotImage(), scale(y, devicePixelRatio));
+                y += innerH - 20;
+                jexec.executeScript("window.scrollTo(0," + y + ")");
+
+                try {
+                    Thread.sleep(this.scrollWait);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+
+            //一番下まで行ったときは、下から埋める
+            stitcher.append(takeScreenShotImage(), scale(scrollH - innerH, devicePixelRatio));
+        } finally {
+            stitcher.close();
+        }
+        metrics.record(Metrics.Stage.STITCH, start);
+
+        for (File file : stitcher.getFiles()) {
+            postProcess(file, null);
+        }
+    }
+
+    private static int scale(int cssPixels, double devicePixelRatio) {
+        return (int) Math.round(cssPixels * devicePixelRatio);
     }
 }
@@ -0,0 +1,202 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores identical screen shots once.
+ *
+ * Every saved capture is hashed before it is compressed. The first capture with a given
+ * SHA-256 is compressed and committed as usual; later ones skip compression and are committed
+ * to the sink as references to it. Duplicates that arrive while the first one is still being
+ * compressed wait until it has been committed. If the sink cannot store a reference (no hard
+ * links on the file system) the duplicate is removed and listed in {@code duplicates.tsv}.
+ */
+public class ContentDeduplicator implements Closeable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(ContentDeduplicator.class);
+    private static final String MANIFEST_FILE = "duplicates.tsv";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputSink sink;
+    private final File manifestFile;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<File, Entry> uncommitted = new HashMap<>();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+    private Writer manifest;
+
+    private static class Entry {
+        private final String digest;
+        private String reference;
+        private List<File> waiting;
+
+        Entry(String digest) {
+            this.digest = digest;
+        }
+    }
+
+    public ContentDeduplicator(OutputSink sink, File directory) {
+        this.sink = sink;
+        this.manifestFile = new File(directory, MANIFEST_FILE);
+    }
+
+    /**
+     * @return true if {@code file} is the first capture with its content and has to be
+     *     compressed and committed; false if it has been (or will be) stored as a reference
+     */
+    public boolean offer(File file) throws IOException {
+        final String digest = digest(file);
+        final long length = file.length();
+
+        final String reference;
+        synchronized (this) {
+            final Entry entry = this.entries.get(digest);
+            if (entry == null) {
+                final Entry created = new Entry(digest);
+                this.entries.put(digest, created);
+                this.uncommitted.put(file, created);
+                return true;
+            }
+
+            if (entry.reference == null) {
+                if (entry.waiting == null) {
+                    entry.waiting = new ArrayList<>();
+                }
+                entry.waiting.add(file);
+                return false;
+            }
+            reference = entry.reference;
+        }
+
+        commitDuplicate(file, length, reference);
+        return false;
+    }
+
+    /**
+     * Called once a file accepted by {@link #offer} has been committed.
+     */
+    public void committed(File file, String reference) throws IOException {
+        final List<File> waiting;
+        synchronized (this) {
+            final Entry entry = this.uncommitted.remove(file);
+            if (entry == null) {
+                return;
+            }
+            waiting = entry.waiting;
+            entry.waiting = null;
+            if (reference == null) {
+                // nothing to point at; the next capture with this content starts over
+                this.entries.remove(entry.digest);
+            } else {
+                entry.reference = reference;
+            }
+        }
+
+        if (waiting == null) {
+            return;
+        }
+        for (File duplicate : waiting) {
+            if (reference == null) {
+                this.sink.commit(duplicate);
+            } else {
+                commitDuplicate(duplicate, duplicate.length(), reference);
+            }
+        }
+    }
+
+    private void commitDuplicate(File file, long length, String reference) throws IOException {
+        try {
+            this.sink.commitDuplicate(file, reference);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.debug(file + ": failed to store a reference", e);
+            file.delete();
+            writeManifest(file, reference);
+        }
+        this.duplicates.incrementAndGet();
+        this.savedBytes.addAndGet(length);
+        LOGGER.debug("duplicate screen shot: {}", file);
+    }
+
+    private synchronized void writeManifest(File file, String reference) throws IOException {
+        if (this.manifest == null) {
+            this.manifest = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(this.manifestFile, true), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+        this.manifest.write(file.getPath() + "\t" + reference + "\n");
+    }
+
+    private static String digest(File file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream input = new FileInputStream(file)) {
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    public long getDuplicates() {
+        return this.duplicates.get();
+    }
+
+    public long getSavedBytes() {
+        return this.savedBytes.get();
+    }
+
+    /**
+     * Commits duplicates whose original never made it into the sink as they are, uncompressed.
+     */
+    @Override
+    public void close() throws IOException {
+        final List<File> orphans = new ArrayList<>();
+        synchronized (this) {
+            for (Entry entry : this.uncommitted.values()) {
+                if (entry.waiting != null) {
+                    orphans.addAll(entry.waiting);
+                    entry.waiting = null;
+                }
+            }
+            this.uncommitted.clear();
+        }
+
+        for (File orphan : orphans) {
+            this.sink.commit(orphan);
+        }
+
+        synchronized (this) {
+            if (this.manifest != null) {
+                this.manifest.close();
+                this.manifest = null;
+            }
+        }
+
+        LOGGER.info("{} duplicate screen shots stored as references ({} KiB)", getDuplicates(), getSavedBytes() / 1024);
+    }
+}
@@ -0,0 +1,419 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Durable crawl state: an append-only journal of enqueued ("E", with the link depth) and
+ * visited ("V") urls, split into numbered segments and periodically compacted into a snapshot.
+ *
+ * Journal lines are buffered and flushed once a second by a background thread, so a crash
+ * loses at most the last second of records; replaying them again is harmless because the
+ * replay is idempotent.
+ */
+public class CrawlJournal implements Closeable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(CrawlJournal.class);
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+    private static final Pattern SEGMENT_PATTERN = Pattern.compile("journal-(\\d+)\\.log");
+    private static final int SNAPSHOT_MAGIC = 0x53444a34;
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final TraverserContext context;
+    private final long snapshotInterval;
+    private final ConcurrentHashMap<String, Integer> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong visitedSinceSnapshot = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private Writer writer;
+    private long segment;
+
+    public CrawlJournal(File directory, TraverserContext context, long snapshotInterval) {
+        this.directory = directory;
+        this.context = context;
+        this.snapshotInterval = snapshotInterval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "crawl-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the journal. When {@code resume} is true the state recorded in the directory is
+     * replayed into the context first; otherwise any previous state is discarded.
+     *
+     * @return the number of pending urls restored into the queue
+     */
+    public long open(boolean resume) throws IOException, InterruptedException {
+        if (!this.directory.exists() && !this.directory.mkdirs()) {
+            throw new IOException(this.directory + ": failed to create journal directory");
+        }
+
+        long restored = 0;
+        if (resume) {
+            restored = restore();
+        } else {
+            discard();
+        }
+
+        synchronized (this) {
+            this.segment = lastSegment() + 1;
+            this.writer = openSegment(this.segment);
+        }
+
+        this.scheduler.scheduleWithFixedDelay(this::tick, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        return restored;
+    }
+
+    public void enqueued(URL url, int depth) {
+        append('E', depth + "\t" + url);
+    }
+
+    /**
+     * Marks a url as in flight. This has to happen before the url is added to the visited set,
+     * so that a snapshot never sees a url as visited without also seeing it in flight.
+     */
+    public void started(URL url) {
+        this.inFlight.merge(url.toString(), 1, Integer::sum);
+    }
+
+    public void abandoned(URL url) {
+        this.inFlight.computeIfPresent(url.toString(), (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public void visited(URL url) {
+        append('V', url.toString());
+        abandoned(url);
+        this.visitedSinceSnapshot.incrementAndGet();
+    }
+
+    private synchronized void append(char type, String url) {
+        if (this.writer == null) {
+            return;
+        }
+
+        try {
+            this.writer.write(type);
+            this.writer.write('\t');
+            this.writer.write(url);
+            this.writer.write('\n');
+        } catch (IOException e) {
+            LOGGER.warn("failed to write crawl journal", e);
+        }
+    }
+
+    private void tick() {
+        try {
+            flush();
+            if (this.snapshotInterval > 0 && this.visitedSinceSnapshot.get() >= this.snapshotInterval) {
+                snapshot();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("failed to update crawl journal", e);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (this.writer != null) {
+            this.writer.flush();
+        }
+    }
+
+    /**
+     * Rotates to a new segment, writes the current state as a snapshot and removes the segments
+     * the snapshot covers. Records that race with the state capture end up in both the
+     * snapshot and the new segment, which replay tolerates.
+     */
+    public void snapshot() throws IOException {
+        final long firstSegment;
+        synchronized (this) {
+            if (this.writer == null) {
+                return;
+            }
+
+            this.writer.close();
+            this.segment++;
+            this.writer = openSegment(this.segment);
+            firstSegment = this.segment;
+        }
+        this.visitedSinceSnapshot.set(0);
+
+        final long start = System.currentTimeMillis();
+        final VisitedSet visited = this.context.getCheck();
+        final List<String> inFlight;
+        final List<URL> queued;
+
+        final File temp = new File(this.directory, SNAPSHOT_TEMP_FILE);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), BUFFER_SIZE))) {
+            output.writeInt(SNAPSHOT_MAGIC);
+            output.writeUTF(visited.getClass().getSimpleName());
+            output.writeLong(firstSegment);
+            // the visited set has to be captured before the urls in flight
+            visited.save(output);
+
+            inFlight = new ArrayList<>(this.inFlight.keySet());
+            queued = this.context.getQueue().toList();
+            final Frontier frontier = this.context.getQueue();
+            output.writeInt(inFlight.size());
+            for (String url : inFlight) {
+                writeString(output, url);
+                output.writeInt(depth(frontier, url));
+            }
+            output.writeInt(queued.size());
+            for (URL url : queued) {
+                writeString(output, url.toString());
+                output.writeInt(frontier.depth(url));
+            }
+        }
+
+        Files.move(temp.toPath(), new File(this.directory, SNAPSHOT_FILE).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long segment : listSegments()) {
+            if (segment < firstSegment) {
+                new File(this.directory, segmentName(segment)).delete();
+            }
+        }
+
+        LOGGER.info("crawl journal snapshot: {} visited, {} pending in {} ms",
+                visited.size(), inFlight.size() + queued.size(), System.currentTimeMillis() - start);
+    }
+
+    private long restore() throws IOException, InterruptedException {
+        final long start = System.currentTimeMillis();
+        final LinkedHashMap<String, Integer> pending = new LinkedHashMap<>();
+
+        long firstSegment = 0;
+        final File snapshot = new File(this.directory, SNAPSHOT_FILE);
+        if (snapshot.exists()) {
+            firstSegment = readSnapshot(snapshot, pending);
+        }
+
+        for (long segment : listSegments()) {
+            if (segment >= firstSegment) {
+                replaySegment(new File(this.directory, segmentName(segment)), pending);
+            }
+        }
+
+        long restored = 0;
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            final String value = entry.getKey();
+            try {
+                this.context.getQueue().put(new URL(value), entry.getValue());
+                restored++;
+            } catch (MalformedURLException e) {
+                LOGGER.debug(value + ": malformed url in crawl journal", e);
+            }
+        }
+
+        LOGGER.info("crawl journal restored: {} pending urls in {} ms", restored, System.currentTimeMillis() - start);
+        return restored;
+    }
+
+    private long readSnapshot(File file, Map<String, Integer> pending) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE))) {
+            if (input.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(file + ": not a crawl journal snapshot");
+            }
+
+            final VisitedSet visited = this.context.getCheck();
+            final String type = input.readUTF();
+            if (!type.equals(visited.getClass().getSimpleName())) {
+                throw new IOException(file + ": snapshot was written with " + type);
+            }
+
+            final long firstSegment = input.readLong();
+            visited.load(input);
+
+            // urls in flight at snapshot time are in the visited set as well; they have to be visited again
+            for (int i = input.readInt(); i > 0; i--) {
+                final String url = readString(input);
+                visited.remove(url);
+                pending.merge(url, input.readInt(), Math::min);
+            }
+
+            // queued urls, once per link, and urls taken by a worker that has not checked them
+            // yet; the ones captured since are done
+            for (int i = input.readInt(); i > 0; i--) {
+                final String url = readString(input);
+                final int depth = input.readInt();
+                if (!visited.contains(url)) {
+                    pending.merge(url, depth, Math::min);
+                }
+            }
+
+            return firstSegment;
+        }
+    }
+
+    private void replaySegment(File file, Map<String, Integer> pending) throws IOException {
+        // a crash may leave the last line torn; only lines terminated by a newline are trusted
+        final boolean complete = endsWithNewline(file);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String line = reader.readLine();
+            while (line != null) {
+                final String next = reader.readLine();
+                if (next == null && !complete) {
+                    break;
+                }
+
+                replayLine(line, pending);
+                line = next;
+            }
+        }
+    }
+
+    private void replayLine(String line, Map<String, Integer> pending) {
+        if (line.length() < 3 || line.charAt(1) != '\t') {
+            return;
+        }
+
+        String url = line.substring(2);
+        switch (line.charAt(0)) {
+            case 'E':
+                int depth = 0;
+                final int tab = url.indexOf('\t');
+                if (tab > 0) {
+                    try {
+                        depth = Integer.parseInt(url.substring(0, tab));
+                    } catch (NumberFormatException e) {
+                        return;
+                    }
+                    url = url.substring(tab + 1);
+                }
+                if (!this.context.containsCheck(url)) {
+                    pending.merge(url, depth, Math::min);
+                }
+                break;
+            case 'V':
+                this.context.addCheck(url);
+                pending.remove(url);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int depth(Frontier frontier, String url) {
+        try {
+            return frontier.depth(new URL(url));
+        } catch (MalformedURLException e) {
+            return 0;
+        }
+    }
+
+    private static boolean endsWithNewline(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() == 0) {
+                return true;
+            }
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private void discard() {
+        for (long segment : listSegments()) {
+            new File(this.directory, segmentName(segment)).delete();
+        }
+        new File(this.directory, SNAPSHOT_FILE).delete();
+        new File(this.directory, SNAPSHOT_TEMP_FILE).delete();
+    }
+
+    private List<Long> listSegments() {
+        final String[] names = this.directory.list();
+        if (names == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Long> segments = new ArrayList<>();
+        for (String name : names) {
+            Matcher matcher = SEGMENT_PATTERN.matcher(name);
+            if (matcher.matches()) {
+                segments.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private long lastSegment() {
+        final List<Long> segments = listSegments();
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+    }
+
+    private static String segmentName(long segment) {
+        return String.format("journal-%08d.log", segment);
+    }
+
+    private Writer openSegment(long segment) throws IOException {
+        final File file = new File(this.directory, segmentName(segment));
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.scheduler.shutdown();
+        try {
+            this.scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        snapshot();
+        synchronized (this) {
+            if (this.writer != null) {
+                this.writer.close();
+                this.writer = null;
+            }
+        }
+    }
+}
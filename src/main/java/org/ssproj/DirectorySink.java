@@ -0,0 +1,87 @@
+package org.ssproj;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * One png per url under {@code host[_port]/path}, with the query string appended to the file
+ * name so that {@code ?page=1} and {@code ?page=2} are kept apart.
+ */
+public class DirectorySink implements OutputSink {
+    private static final Pattern HIDDEN_PATTERN = Pattern.compile("/\\.");
+    private static final String UNSAFE_CHARACTERS = "%\\/:*?\"<>|";
+
+    private final File directory;
+    private final Set<String> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    public DirectorySink(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    @Override
+    public File getFile(URL url) {
+        final File outputFile = new File(this.directory, relativePath(url));
+        final File outputDirectory = outputFile.getParentFile();
+        if (this.createdDirectories.add(outputDirectory.getPath()) && !outputDirectory.exists()) {
+            outputDirectory.mkdirs();
+        }
+
+        return outputFile;
+    }
+
+    /**
+     * @return {@code host[_port]/path[%3Fquery].png}, with "/" as separator and "%" in the
+     *     path escaped as {@code %25}
+     */
+    public static String relativePath(URL url) {
+        final String host = url.getHost();
+        final int port = url.getPort();
+        final StringBuilder path = new StringBuilder(port == -1 ? host : host + "_" + port);
+
+        String outputFileName = url.getPath();
+        if (!outputFileName.startsWith("/")) {
+            outputFileName = "/" + outputFileName;
+        }
+        if (outputFileName.endsWith("/")) {
+            outputFileName = outputFileName + "index.html";
+        }
+        // "%" is escaped as well, or "/a%3Fb" would share the file of "/a?b"
+        path.append(HIDDEN_PATTERN.matcher(outputFileName).replaceAll("/_").replace("%", "%25"));
+
+        final String query = url.getQuery();
+        if (query != null && !query.isEmpty()) {
+            path.append("%3F");
+            escape(query, path);
+        }
+
+        return path.append(".png").toString();
+    }
+
+    private static void escape(String value, StringBuilder output) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (UNSAFE_CHARACTERS.indexOf(c) >= 0 || c < 0x20) {
+                output.append('%').append(Character.toUpperCase(Character.forDigit(c >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            } else {
+                output.append(c);
+            }
+        }
+    }
+
+    @Override
+    public String commit(File file) {
+        return file.exists() ? file.getPath() : null;
+    }
+
+    @Override
+    public void close() {
+    }
+}
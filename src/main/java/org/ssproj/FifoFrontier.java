@@ -0,0 +1,119 @@
+package org.ssproj;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class FifoFrontier implements Frontier {
+    private final ArrayDeque<URL> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = this.lock.newCondition();
+    // handed out by poll and not done yet, for snapshots
+    private final List<URL> active = new ArrayList<>();
+    private boolean finishing;
+
+    @Override
+    public void put(URL url, int depth) {
+        this.lock.lock();
+        try {
+            this.queue.addLast(url);
+            this.changed.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public URL poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.queue.isEmpty()) {
+                if (nanos <= 0 || finished()) {
+                    return null;
+                }
+                nanos = this.changed.awaitNanos(nanos);
+            }
+
+            final URL url = this.queue.pollFirst();
+            this.active.add(url);
+            return url;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void done(URL url) {
+        this.lock.lock();
+        try {
+            release(url);
+            if (finished()) {
+                this.changed.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void finish() {
+        this.lock.lock();
+        try {
+            this.finishing = true;
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        this.lock.lock();
+        try {
+            return finished();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean finished() {
+        return this.finishing && this.active.isEmpty() && this.queue.isEmpty();
+    }
+
+    private void release(URL url) {
+        final String key = url.toString();
+        for (int i = 0; i < this.active.size(); i++) {
+            if (this.active.get(i).toString().equals(key)) {
+                this.active.remove(i);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.queue.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<URL> toList() {
+        this.lock.lock();
+        try {
+            final List<URL> urls = new ArrayList<>(this.queue);
+            urls.addAll(this.active);
+            return urls;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
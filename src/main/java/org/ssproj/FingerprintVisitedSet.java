@@ -0,0 +1,308 @@
+package org.ssproj;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps 64-bit fingerprints of urls in open-addressed {@code long} tables, split into stripes
+ * that are locked independently. Lookups use optimistic reads and do not block each other.
+ *
+ * Two different urls share a fingerprint with a probability of about n^2 / 2^65, so for
+ * ten million urls the chance that any page is wrongly skipped is around one in a million.
+ */
+public class FingerprintVisitedSet implements VisitedSet {
+    private static final int STRIPES = 64;
+    private static final int STRIPE_BITS = 6;
+    private static final double MAX_LOAD = 0.6;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    private static final long EMPTY = 0;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final BloomFilter bloomFilter;
+
+    public FingerprintVisitedSet(long expectedSize, boolean bloomFilter) {
+        final long perStripe = Math.max(16, (long) (expectedSize / STRIPES / MAX_LOAD));
+        final int capacity = Integer.highestOneBit((int) Math.min(perStripe, 1 << 30) - 1) << 1;
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+
+        this.bloomFilter = bloomFilter ? new BloomFilter(Math.max(expectedSize, 1024), BLOOM_FALSE_POSITIVE_RATE) : null;
+    }
+
+    /**
+     * FNV-1a over the UTF-16 code units followed by the murmur3 finalizer. Never returns 0,
+     * which marks an empty slot.
+     */
+    public static long fingerprint(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h == EMPTY ? 1 : h;
+    }
+
+    private Stripe stripeOf(long fingerprint) {
+        return this.stripes[(int) (fingerprint >>> (64 - STRIPE_BITS))];
+    }
+
+    @Override
+    public boolean add(String url) {
+        return addFingerprint(fingerprint(url));
+    }
+
+    private boolean addFingerprint(long fingerprint) {
+        if (this.bloomFilter != null) {
+            this.bloomFilter.put(fingerprint);
+        }
+
+        final Stripe stripe = stripeOf(fingerprint);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.insert(fingerprint);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(String url) {
+        final long fingerprint = fingerprint(url);
+        if (this.bloomFilter != null && !this.bloomFilter.mightContain(fingerprint)) {
+            return false;
+        }
+
+        final Stripe stripe = stripeOf(fingerprint);
+        long stamp = stripe.lock.tryOptimisticRead();
+        if (stamp != 0) {
+            final boolean found = stripe.find(fingerprint) >= 0;
+            if (stripe.lock.validate(stamp)) {
+                return found;
+            }
+        }
+
+        stamp = stripe.lock.readLock();
+        try {
+            return stripe.find(fingerprint) >= 0;
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Removes a url from the tables. The bloom filter keeps its bits, which only costs an
+     * extra table lookup for that url.
+     */
+    @Override
+    public boolean remove(String url) {
+        final long fingerprint = fingerprint(url);
+        final Stripe stripe = stripeOf(fingerprint);
+        final long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.delete(fingerprint);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : this.stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    @Override
+    public long memoryUsage() {
+        long bytes = 0;
+        for (Stripe stripe : this.stripes) {
+            bytes += stripe.table.length * 8L;
+        }
+        if (this.bloomFilter != null) {
+            bytes += this.bloomFilter.memoryUsage();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void save(DataOutputStream output) throws IOException {
+        for (Stripe stripe : this.stripes) {
+            final long[] table;
+            final long stamp = stripe.lock.readLock();
+            try {
+                table = stripe.table.clone();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+
+            for (long fingerprint : table) {
+                if (fingerprint != EMPTY) {
+                    output.writeLong(fingerprint);
+                }
+            }
+        }
+        output.writeLong(EMPTY);
+    }
+
+    @Override
+    public void load(DataInputStream input) throws IOException {
+        for (long fingerprint = input.readLong(); fingerprint != EMPTY; fingerprint = input.readLong()) {
+            addFingerprint(fingerprint);
+        }
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private long[] table;
+        private int size;
+
+        Stripe(int capacity) {
+            this.table = new long[capacity];
+        }
+
+        int find(long fingerprint) {
+            final long[] table = this.table;
+            final int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+            // bounded so that an optimistic read over a table being modified cannot spin forever
+            for (int probes = 0; probes < table.length; probes++) {
+                final long value = table[index];
+                if (value == fingerprint) {
+                    return index;
+                }
+                if (value == EMPTY) {
+                    return -1;
+                }
+                index = (index + 1) & mask;
+            }
+            return -1;
+        }
+
+        boolean insert(long fingerprint) {
+            if (this.size + 1 > this.table.length * MAX_LOAD) {
+                resize();
+            }
+
+            final long[] table = this.table;
+            final int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+            for (;;) {
+                final long value = table[index];
+                if (value == fingerprint) {
+                    return false;
+                }
+                if (value == EMPTY) {
+                    table[index] = fingerprint;
+                    this.size++;
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        boolean delete(long fingerprint) {
+            int hole = find(fingerprint);
+            if (hole < 0) {
+                return false;
+            }
+
+            final long[] table = this.table;
+            final int mask = table.length - 1;
+            table[hole] = EMPTY;
+            this.size--;
+
+            // backward-shift the rest of the cluster so that lookups need no tombstones
+            int index = hole;
+            for (;;) {
+                index = (index + 1) & mask;
+                final long value = table[index];
+                if (value == EMPTY) {
+                    return true;
+                }
+
+                final int home = (int) value & mask;
+                final boolean between = hole <= index ? (hole < home && home <= index) : (hole < home || home <= index);
+                if (!between) {
+                    table[hole] = value;
+                    table[index] = EMPTY;
+                    hole = index;
+                }
+            }
+        }
+
+        private void resize() {
+            final long[] old = this.table;
+            final long[] table = new long[old.length << 1];
+            final int mask = table.length - 1;
+            for (long value : old) {
+                if (value == EMPTY) {
+                    continue;
+                }
+
+                int index = (int) value & mask;
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+            this.table = table;
+        }
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long numBits;
+        private final int numHashes;
+
+        BloomFilter(long expectedSize, double falsePositiveRate) {
+            final long numBits = (long) (-expectedSize * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            final int words = (int) Math.min((numBits + 63) / 64, Integer.MAX_VALUE - 8);
+            this.bits = new AtomicLongArray(words);
+            this.numBits = words * 64L;
+            this.numHashes = Math.max(1, (int) Math.round((double) this.numBits / expectedSize * Math.log(2)));
+        }
+
+        void put(long fingerprint) {
+            final int h1 = (int) fingerprint;
+            final int h2 = (int) (fingerprint >>> 32);
+            for (int i = 1; i <= this.numHashes; i++) {
+                final long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.numBits;
+                final int word = (int) (bit >>> 6);
+                final long mask = 1L << bit;
+                long current = this.bits.get(word);
+                while ((current & mask) == 0 && !this.bits.compareAndSet(word, current, current | mask)) {
+                    current = this.bits.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(long fingerprint) {
+            final int h1 = (int) fingerprint;
+            final int h2 = (int) (fingerprint >>> 32);
+            for (int i = 1; i <= this.numHashes; i++) {
+                final long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % this.numBits;
+                if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long memoryUsage() {
+            return this.bits.length() * 8L;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.ssproj;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Urls waiting to be visited. Every url returned by {@link #poll} has to be handed back to
+ * {@link #done} once the visit is over, after the links found on the page have been put.
+ * Together with {@link #finish} this lets the frontier tell when the crawl is over: nothing is
+ * queued and no visit could add anything.
+ */
+public interface Frontier {
+    /**
+     * @param depth number of links followed from a seed url; seeds are 0
+     */
+    void put(URL url, int depth) throws InterruptedException;
+
+    /**
+     * @return the next url, or null if none became available within the timeout or the
+     *     frontier is finished
+     */
+    URL poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    void done(URL url);
+
+    /**
+     * Declares that no more urls will be put except by running visits. From then on
+     * {@link #poll} returns null as soon as nothing is queued and no visit is running.
+     */
+    void finish();
+
+    /**
+     * @return true once {@link #finish} has been called and nothing is queued or being visited
+     */
+    boolean isFinished();
+
+    int size();
+
+    /**
+     * @return a copy of the queued urls and of those handed out by {@link #poll} but not
+     *     {@link #done} yet, for snapshots
+     */
+    List<URL> toList();
+
+    /**
+     * @return the depth of a queued or in-flight url, or 0 if this frontier does not track it
+     */
+    default int depth(URL url) {
+        return 0;
+    }
+
+    /**
+     * @return false if urls at {@code depth} would be dropped, so their links need not be extracted
+     */
+    default boolean accepts(int depth) {
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package org.ssproj;
+
+public class FrontierFactory {
+    public static Frontier create(TraverseSetting setting) {
+        final String type = setting.getFrontier();
+        // only the priority frontier keeps the depth of the urls it queues
+        if (setting.getMaxDepth() > 0 && !"priority".equalsIgnoreCase(type)) {
+            throw new IllegalArgumentException("maxDepth requires the priority frontier, not " + type);
+        }
+
+        final Frontier frontier;
+        if (type == null || type.equalsIgnoreCase("fifo")) {
+            frontier = new FifoFrontier();
+        } else if (type.equalsIgnoreCase("host")) {
+            frontier = new HostFrontier(setting.getHostMaxConcurrency(), setting.getHostMinDelay(), setting.getHostSettings());
+        } else if (type.equalsIgnoreCase("priority")) {
+            frontier = new PriorityFrontier(createPolicy(setting));
+        } else {
+            throw new IllegalArgumentException("unknown frontier: " + type);
+        }
+
+        return frontier;
+    }
+
+    public static FrontierPolicy createPolicy(TraverseSetting setting) {
+        final String type = setting.getFrontierPolicy();
+        FrontierPolicy policy;
+        if (type == null || type.equalsIgnoreCase("bfs")) {
+            policy = new FrontierPolicy.BreadthFirst();
+        } else if (type.equalsIgnoreCase("inlinks")) {
+            policy = new FrontierPolicy.MostLinked();
+        } else {
+            throw new IllegalArgumentException("unknown frontier policy: " + type);
+        }
+
+        if (setting.getMaxDepth() > 0) {
+            policy = new FrontierPolicy.DepthLimit(policy, setting.getMaxDepth());
+        }
+
+        return policy;
+    }
+}
@@ -0,0 +1,56 @@
+package org.ssproj;
+
+/**
+ * Orders the urls of a {@link PriorityFrontier}: urls with a smaller priority are visited
+ * first, ties in the order they were discovered.
+ */
+public interface FrontierPolicy {
+    long priority(int depth, int inlinks);
+
+    default boolean accepts(int depth) {
+        return true;
+    }
+
+    /**
+     * Shallow pages first.
+     */
+    class BreadthFirst implements FrontierPolicy {
+        @Override
+        public long priority(int depth, int inlinks) {
+            return depth;
+        }
+    }
+
+    /**
+     * Pages linked from the most visited pages first; shallower pages win a tie.
+     */
+    class MostLinked implements FrontierPolicy {
+        @Override
+        public long priority(int depth, int inlinks) {
+            return depth - ((long) inlinks << 32);
+        }
+    }
+
+    /**
+     * Drops urls deeper than {@code maxDepth} and orders the rest by {@code policy}.
+     */
+    class DepthLimit implements FrontierPolicy {
+        private final FrontierPolicy policy;
+        private final int maxDepth;
+
+        public DepthLimit(FrontierPolicy policy, int maxDepth) {
+            this.policy = policy;
+            this.maxDepth = maxDepth;
+        }
+
+        @Override
+        public long priority(int depth, int inlinks) {
+            return this.policy.priority(depth, inlinks);
+        }
+
+        @Override
+        public boolean accepts(int depth) {
+            return depth <= this.maxDepth && this.policy.accepts(depth);
+        }
+    }
+}
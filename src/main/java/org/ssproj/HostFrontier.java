@@ -0,0 +1,208 @@
+package org.ssproj;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps one queue per host and hands urls out round-robin across the hosts that are eligible:
+ * fewer than {@code maxConcurrency} visits running and at least {@code minDelay} ms since the
+ * last visit started. A slow or throttled host therefore holds at most its own share of workers.
+ */
+public class HostFrontier implements Frontier {
+    private final Map<String, HostSetting> hostSettings;
+    private final int defaultMaxConcurrency;
+    private final long defaultMinDelay;
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    private final ArrayDeque<HostQueue> ring = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = this.lock.newCondition();
+    // handed out by poll and not done yet, for snapshots
+    private final List<URL> active = new ArrayList<>();
+    private int size;
+    private boolean finishing;
+
+    private static final class HostQueue {
+        private final int maxConcurrency;
+        private final long minDelay;
+        private final ArrayDeque<URL> urls = new ArrayDeque<>();
+        private int active;
+        private long nextStart;
+
+        HostQueue(int maxConcurrency, long minDelay) {
+            this.maxConcurrency = maxConcurrency;
+            this.minDelay = minDelay;
+        }
+
+        boolean saturated() {
+            return this.maxConcurrency > 0 && this.active >= this.maxConcurrency;
+        }
+    }
+
+    public HostFrontier(int defaultMaxConcurrency, long defaultMinDelay, Map<String, HostSetting> hostSettings) {
+        this.defaultMaxConcurrency = defaultMaxConcurrency;
+        this.defaultMinDelay = defaultMinDelay;
+        this.hostSettings = hostSettings;
+    }
+
+    private static String hostOf(URL url) {
+        return url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+    }
+
+    private HostQueue hostQueue(String host) {
+        HostQueue queue = this.hosts.get(host);
+        if (queue == null) {
+            final HostSetting setting = this.hostSettings.get(host);
+            final int maxConcurrency = setting != null && setting.getMaxConcurrency() >= 0 ? setting.getMaxConcurrency() : this.defaultMaxConcurrency;
+            final long minDelay = setting != null && setting.getMinDelay() >= 0 ? setting.getMinDelay() : this.defaultMinDelay;
+            queue = new HostQueue(maxConcurrency, minDelay);
+            this.hosts.put(host, queue);
+        }
+        return queue;
+    }
+
+    @Override
+    public void put(URL url, int depth) {
+        this.lock.lock();
+        try {
+            final HostQueue queue = hostQueue(hostOf(url));
+            if (queue.urls.isEmpty()) {
+                this.ring.addLast(queue);
+            }
+            queue.urls.addLast(url);
+            this.size++;
+            this.changed.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public URL poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            for (;;) {
+                if (finished()) {
+                    return null;
+                }
+
+                final long now = System.currentTimeMillis();
+                long wait = Long.MAX_VALUE;
+
+                for (int i = this.ring.size(); i > 0; i--) {
+                    final HostQueue queue = this.ring.pollFirst();
+                    if (!queue.saturated() && queue.nextStart <= now) {
+                        final URL url = queue.urls.pollFirst();
+                        if (!queue.urls.isEmpty()) {
+                            this.ring.addLast(queue);
+                        }
+                        queue.active++;
+                        queue.nextStart = now + queue.minDelay;
+                        this.size--;
+                        this.active.add(url);
+                        return url;
+                    }
+
+                    this.ring.addLast(queue);
+                    if (!queue.saturated()) {
+                        wait = Math.min(wait, queue.nextStart - now);
+                    }
+                }
+
+                if (remaining <= 0) {
+                    return null;
+                }
+
+                // wake up when the earliest throttled host becomes eligible, or on put/done
+                final long nanos = wait == Long.MAX_VALUE ? remaining : Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(wait));
+                remaining -= nanos - this.changed.awaitNanos(nanos);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void done(URL url) {
+        this.lock.lock();
+        try {
+            release(url);
+            final HostQueue queue = this.hosts.get(hostOf(url));
+            if (queue != null && queue.active > 0) {
+                queue.active--;
+                this.changed.signalAll();
+            } else if (finished()) {
+                this.changed.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void finish() {
+        this.lock.lock();
+        try {
+            this.finishing = true;
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        this.lock.lock();
+        try {
+            return finished();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean finished() {
+        return this.finishing && this.active.isEmpty() && this.size == 0;
+    }
+
+    private void release(URL url) {
+        final String key = url.toString();
+        for (int i = 0; i < this.active.size(); i++) {
+            if (this.active.get(i).toString().equals(key)) {
+                this.active.remove(i);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<URL> toList() {
+        this.lock.lock();
+        try {
+            final List<URL> urls = new ArrayList<>(this.size + this.active.size());
+            for (HostQueue queue : this.ring) {
+                urls.addAll(queue.urls);
+            }
+            urls.addAll(this.active);
+            return urls;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
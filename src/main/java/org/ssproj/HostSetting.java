@@ -0,0 +1,33 @@
+package org.ssproj;
+
+/**
+ * Politeness limits for one host. Negative values fall back to the global defaults.
+ */
+public class HostSetting {
+    private int maxConcurrency = -1;
+    private long minDelay = -1;
+
+    public HostSetting() {
+    }
+
+    public HostSetting(int maxConcurrency, long minDelay) {
+        this.maxConcurrency = maxConcurrency;
+        this.minDelay = minDelay;
+    }
+
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public long getMinDelay() {
+        return this.minDelay;
+    }
+
+    public void setMinDelay(long minDelay) {
+        this.minDelay = minDelay;
+    }
+}
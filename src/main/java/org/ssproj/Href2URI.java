@@ -15,17 +15,37 @@ public class Href2URI {
     private final static Logger LOGGER = LoggerFactory.getLogger(Href2URI.class);
     private final WebDriver driver;
     private final URI baseURI;
+    private final URLCanonicalizer canonicalizer;
 
     public Href2URI(WebDriver driver) throws URISyntaxException {
+        this(driver, null);
+    }
+
+    public Href2URI(WebDriver driver, URLCanonicalizer canonicalizer) throws URISyntaxException {
         this.driver = driver;
         this.baseURI = new URI(this.driver.getCurrentUrl());
+        this.canonicalizer = canonicalizer;
     }
 
     public Object getBaseURI() {
         return baseURI;
     }
 
+    /**
+     * @return the canonical url of {@code href}, or null if it is not an http(s) url
+     */
     public URL apply(String href) {
+        final URL url = resolve(href);
+        if (url == null || this.canonicalizer == null) {
+            return url;
+        }
+        return this.canonicalizer.apply(url);
+    }
+
+    /**
+     * @return {@code href} resolved against the current page, without fragment
+     */
+    public URL resolve(String href) {
         URI uri = baseURI.resolve(href).normalize();
 
         try {
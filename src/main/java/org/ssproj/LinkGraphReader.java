@@ -0,0 +1,135 @@
+package org.ssproj;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a file written by {@link LinkGraphWriter} record by record, without keeping the graph
+ * in memory.
+ */
+public class LinkGraphReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream input;
+    private int[] links = new int[64];
+    private int nodes;
+
+    public interface Visitor {
+        /**
+         * @param url the url of the page, or null if urls are skipped
+         */
+        void node(int id, String url);
+
+        /**
+         * @param links the ids of the linked pages in ascending order, valid during the call only
+         */
+        void links(int id, int[] links, int count);
+
+        void status(int id, int status);
+    }
+
+    public LinkGraphReader(File file) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+        if (this.input.readInt() != LinkGraphWriter.MAGIC) {
+            this.input.close();
+            throw new IOException(file + ": not a link graph");
+        }
+        final int version = this.input.readUnsignedByte();
+        if (version != LinkGraphWriter.VERSION) {
+            this.input.close();
+            throw new IOException(file + ": unsupported link graph version " + version);
+        }
+    }
+
+    /**
+     * Passes every record to {@code visitor}. A record cut off at the end of the file, as
+     * left by a crawl that was killed, ends the graph.
+     *
+     * @param urls false to skip decoding the urls
+     */
+    public void read(Visitor visitor, boolean urls) throws IOException {
+        for (;;) {
+            final int type = this.input.read();
+            if (type < 0) {
+                return;
+            }
+
+            try {
+                switch (type) {
+                    case LinkGraphWriter.NODE:
+                        final int length = readVarint();
+                        if (urls) {
+                            final byte[] bytes = new byte[length];
+                            this.input.readFully(bytes);
+                            visitor.node(this.nodes++, new String(bytes, StandardCharsets.UTF_8));
+                        } else {
+                            skip(length);
+                            visitor.node(this.nodes++, null);
+                        }
+                        break;
+                    case LinkGraphWriter.LINKS:
+                        final int id = readVarint();
+                        final int count = readVarint();
+                        if (this.links.length < count) {
+                            this.links = new int[Math.max(count, this.links.length * 2)];
+                        }
+                        int previous = 0;
+                        for (int i = 0; i < count; i++) {
+                            previous += readVarint();
+                            this.links[i] = previous;
+                        }
+                        visitor.links(id, this.links, count);
+                        break;
+                    case LinkGraphWriter.STATUS:
+                        visitor.status(readVarint(), this.input.readUnsignedByte());
+                        break;
+                    default:
+                        throw new IOException("unknown record type: " + type);
+                }
+            } catch (EOFException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of pages read so far
+     */
+    public int getNodes() {
+        return this.nodes;
+    }
+
+    private void skip(int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = this.input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = this.input.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.input.close();
+    }
+}
@@ -0,0 +1,231 @@
+package org.ssproj;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Prints in- and out-degrees, orphan pages and broken links of a link graph written by
+ * {@link LinkGraphWriter}. The file is read twice: once for the degrees and statuses, kept as
+ * a few ints per page, and once for the urls of the pages that are printed.
+ */
+public class LinkGraphSummary {
+    public static final int DEFAULT_LIMIT = 20;
+    private static final String[] STATUSES = {"not visited", "visited", "failed", "skipped", "redirected"};
+
+    private final File file;
+    private final int limit;
+    private int nodes;
+    private long edges;
+    private int[] inDegrees = new int[1024];
+    private int[] outDegrees = new int[1024];
+    private int[] referrers = new int[1024];
+    private byte[] statuses = new byte[1024];
+
+    public LinkGraphSummary(File file, int limit) {
+        this.file = file;
+        this.limit = limit;
+    }
+
+    public static void run(String fileName, int limit) throws IOException {
+        final LinkGraphSummary summary = new LinkGraphSummary(new File(fileName), limit);
+        summary.read();
+        summary.print(System.out);
+    }
+
+    public void read() throws IOException {
+        try (LinkGraphReader reader = new LinkGraphReader(this.file)) {
+            reader.read(new LinkGraphReader.Visitor() {
+                @Override
+                public void node(int id, String url) {
+                    ensureCapacity(id + 1);
+                    nodes = id + 1;
+                }
+
+                @Override
+                public void links(int id, int[] links, int count) {
+                    outDegrees[id] = count;
+                    edges += count;
+                    for (int i = 0; i < count; i++) {
+                        final int target = links[i];
+                        if (target == id) {
+                            continue;
+                        }
+                        inDegrees[target]++;
+                        if (referrers[target] == 0) {
+                            // one based, 0 is none
+                            referrers[target] = id + 1;
+                        }
+                    }
+                }
+
+                @Override
+                public void status(int id, int status) {
+                    statuses[id] = (byte) (status + 1);
+                }
+            }, false);
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= this.inDegrees.length) {
+            return;
+        }
+        final int capacity = Math.max(size, this.inDegrees.length * 2);
+        this.inDegrees = Arrays.copyOf(this.inDegrees, capacity);
+        this.outDegrees = Arrays.copyOf(this.outDegrees, capacity);
+        this.referrers = Arrays.copyOf(this.referrers, capacity);
+        this.statuses = Arrays.copyOf(this.statuses, capacity);
+    }
+
+    private int status(int id) {
+        return this.statuses[id];
+    }
+
+    private boolean isBroken(int id) {
+        return status(id) == LinkGraphWriter.FAILED + 1 || status(id) == LinkGraphWriter.SKIPPED + 1;
+    }
+
+    public void print(PrintStream out) throws IOException {
+        final int[] counts = new int[STATUSES.length];
+        long visitedIn = 0;
+        long visitedOut = 0;
+        int maxIn = 0;
+        int maxOut = 0;
+        int linking = 0;
+        final List<Integer> orphans = new ArrayList<>();
+        final List<Integer> broken = new ArrayList<>();
+        long brokenLinks = 0;
+        for (int id = 0; id < this.nodes; id++) {
+            counts[status(id)]++;
+            if (this.outDegrees[id] > 0) {
+                linking++;
+            }
+            if (status(id) == LinkGraphWriter.VISITED + 1) {
+                visitedIn += this.inDegrees[id];
+                visitedOut += this.outDegrees[id];
+                maxIn = Math.max(maxIn, this.inDegrees[id]);
+                maxOut = Math.max(maxOut, this.outDegrees[id]);
+                if (this.inDegrees[id] == 0) {
+                    orphans.add(id);
+                }
+            }
+            if (isBroken(id) && this.inDegrees[id] > 0) {
+                broken.add(id);
+                brokenLinks += this.inDegrees[id];
+            }
+        }
+
+        final List<Integer> mostLinked = top(this.inDegrees);
+        final List<Integer> mostLinking = top(this.outDegrees);
+        broken.sort((a, b) -> Integer.compare(this.inDegrees[b], this.inDegrees[a]));
+
+        final List<Integer> printed = new ArrayList<>();
+        printed.addAll(mostLinked);
+        printed.addAll(mostLinking);
+        printed.addAll(head(orphans));
+        for (int id : head(broken)) {
+            printed.add(id);
+            printed.add(this.referrers[id] - 1);
+        }
+        final Map<Integer, String> urls = urls(printed);
+
+        out.printf("pages: %d", this.nodes);
+        for (int i = 0; i < STATUSES.length; i++) {
+            out.printf(", %d %s", counts[i], STATUSES[i]);
+        }
+        out.println();
+        out.printf("links: %d from %d pages%n", this.edges, linking);
+        final int visited = counts[LinkGraphWriter.VISITED + 1];
+        out.printf("in-degree of visited pages: mean %.1f, max %d%n", visited > 0 ? (double) visitedIn / visited : 0.0, maxIn);
+        out.printf("out-degree of visited pages: mean %.1f, max %d%n", visited > 0 ? (double) visitedOut / visited : 0.0, maxOut);
+
+        out.println();
+        out.println("most linked pages:");
+        for (int id : mostLinked) {
+            out.printf("%8d  %s%n", this.inDegrees[id], urls.get(id));
+        }
+
+        out.println();
+        out.println("pages with most links:");
+        for (int id : mostLinking) {
+            out.printf("%8d  %s%n", this.outDegrees[id], urls.get(id));
+        }
+
+        out.println();
+        out.printf("orphan pages (visited, not linked from any page): %d%n", orphans.size());
+        for (int id : head(orphans)) {
+            out.printf("          %s%n", urls.get(id));
+        }
+
+        out.println();
+        out.printf("broken links (to failed or skipped pages): %d links to %d pages%n", brokenLinks, broken.size());
+        for (int id : head(broken)) {
+            out.printf("%8d  %s (%s), e.g. from %s%n", this.inDegrees[id], urls.get(id), STATUSES[status(id)],
+                    urls.get(this.referrers[id] - 1));
+        }
+    }
+
+    private <T> List<T> head(List<T> list) {
+        return list.size() > this.limit ? list.subList(0, this.limit) : list;
+    }
+
+    /**
+     * @return the ids of the {@code limit} pages with the highest degree, highest first
+     */
+    private List<Integer> top(int[] degrees) {
+        final PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Integer.compare(degrees[a], degrees[b]));
+        for (int id = 0; id < this.nodes; id++) {
+            if (degrees[id] == 0) {
+                continue;
+            }
+            if (top.size() < this.limit) {
+                top.add(id);
+            } else if (this.limit > 0 && degrees[id] > degrees[top.peek()]) {
+                top.poll();
+                top.add(id);
+            }
+        }
+
+        final List<Integer> ids = new ArrayList<>(top);
+        ids.sort((a, b) -> Integer.compare(degrees[b], degrees[a]));
+        return ids;
+    }
+
+    private Map<Integer, String> urls(List<Integer> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<Integer, String> urls = new HashMap<>();
+        for (int id : ids) {
+            urls.put(id, null);
+        }
+        try (LinkGraphReader reader = new LinkGraphReader(this.file)) {
+            reader.read(new LinkGraphReader.Visitor() {
+                @Override
+                public void node(int id, String url) {
+                    if (urls.containsKey(id)) {
+                        urls.put(id, url);
+                    }
+                }
+
+                @Override
+                public void links(int id, int[] links, int count) {
+                }
+
+                @Override
+                public void status(int id, int status) {
+                }
+            }, true);
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,227 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the links between pages in a compact binary file while the crawl runs.
+ *
+ * Workers only queue what they found; one thread numbers the urls in the order they appear
+ * and writes the records through a buffer. The file starts with {@link #MAGIC} and a version
+ * byte, followed by records that start with a type byte:
+ * <ul>
+ * <li>{@link #NODE}: the url of the next id, as a varint length and UTF-8 bytes. A url is
+ *     written before the first record that refers to it.</li>
+ * <li>{@link #LINKS}: the id of a page, the number of distinct pages it links to, and their
+ *     ids in ascending order, the first as is and the others as the difference to the one
+ *     before, all as varints.</li>
+ * <li>{@link #STATUS}: the id of a page and how its visit ended, one of the {@code VISITED},
+ *     {@code FAILED}, {@code SKIPPED} or {@code REDIRECTED} bytes.</li>
+ * </ul>
+ * Varints are unsigned LEB128: seven bits per byte, least significant first, the high bit
+ * set on all but the last byte. See {@link LinkGraphReader}.
+ */
+public class LinkGraphWriter implements Closeable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(LinkGraphWriter.class);
+    public static final int MAGIC = 0x53444c47;
+    public static final int VERSION = 1;
+    public static final int NODE = 1;
+    public static final int LINKS = 2;
+    public static final int STATUS = 3;
+    public static final int VISITED = 0;
+    public static final int FAILED = 1;
+    public static final int SKIPPED = 2;
+    public static final int REDIRECTED = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int QUEUE_SIZE = 4096;
+    private static final long POLL_TIMEOUT = 100;
+
+    private final DataOutputStream output;
+    private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final BitSet linked = new BitSet();
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile boolean failed;
+    private long nodes;
+    private long edges;
+
+    private static class Event {
+        private final URL url;
+        private final List<URL> links;
+        private final int status;
+
+        Event(URL url, List<URL> links, int status) {
+            this.url = url;
+            this.links = links;
+            this.status = status;
+        }
+    }
+
+    public LinkGraphWriter(File file) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        this.output.writeInt(MAGIC);
+        this.output.writeByte(VERSION);
+        this.thread = new Thread(this::run, "link-graph-writer");
+        this.thread.start();
+    }
+
+    /**
+     * Records the links found on {@code url}. Only the first call for a page is recorded, so
+     * that a page visited again after a browser crash does not count twice. Blocks while the
+     * queue is full, unless the file could not be written.
+     */
+    public void links(URL url, List<URL> links) throws InterruptedException {
+        offer(new Event(url, links, -1));
+    }
+
+    /**
+     * Records how the visit of {@code url} ended, one of {@link #VISITED}, {@link #FAILED},
+     * {@link #SKIPPED} and {@link #REDIRECTED}.
+     */
+    public void status(URL url, int status) throws InterruptedException {
+        offer(new Event(url, null, status));
+    }
+
+    private void offer(Event event) throws InterruptedException {
+        if (this.closed) {
+            throw new IllegalStateException("link graph is already closed");
+        }
+        // the writer thread stops on a write error; the crawl goes on without the graph
+        while (!this.failed) {
+            if (this.queue.offer(event, POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    private void run() {
+        for (;;) {
+            final Event event;
+            try {
+                event = this.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.info("interrupted");
+                fail();
+                break;
+            }
+
+            if (event == null) {
+                if (this.closed) {
+                    break;
+                }
+                continue;
+            }
+
+            try {
+                write(event);
+            } catch (IOException e) {
+                LOGGER.error("failed to write link graph, dropping the rest of it", e);
+                fail();
+                break;
+            }
+        }
+    }
+
+    private void fail() {
+        this.failed = true;
+        this.queue.clear();
+    }
+
+    private void write(Event event) throws IOException {
+        final int id = id(event.url);
+        if (event.links == null) {
+            this.output.writeByte(STATUS);
+            writeVarint(id);
+            this.output.writeByte(event.status);
+            return;
+        }
+
+        if (this.linked.get(id)) {
+            return;
+        }
+        this.linked.set(id);
+
+        final int[] targets = new int[event.links.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = id(event.links.get(i));
+        }
+        Arrays.sort(targets);
+
+        int count = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (i == 0 || targets[i] != targets[i - 1]) {
+                targets[count++] = targets[i];
+            }
+        }
+
+        this.output.writeByte(LINKS);
+        writeVarint(id);
+        writeVarint(count);
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarint(targets[i] - previous);
+            previous = targets[i];
+        }
+        this.edges += count;
+    }
+
+    private int id(URL url) throws IOException {
+        final String key = url.toString();
+        final Integer id = this.ids.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        final int created = this.ids.size();
+        this.ids.put(key, created);
+        final byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        this.output.writeByte(NODE);
+        writeVarint(bytes.length);
+        this.output.write(bytes);
+        this.nodes++;
+        return created;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            this.output.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        this.output.writeByte(value);
+    }
+
+    /**
+     * Writes everything queued so far and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.output.close();
+        LOGGER.info("link graph: {} pages, {} links", this.nodes, this.edges);
+    }
+}
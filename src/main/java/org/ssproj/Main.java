@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import org.yaml.snakeyaml.error.YAMLException;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class Main {
     private final static Logger LOGGER = LoggerFactory.getLogger(Main.class);
@@ -22,6 +23,17 @@ public class Main {
         opts.addOption("s", "sleep", true, "specify sleep in milliseconds before taking each screenshots. default is 500.");
         opts.addOption("width", "width", true, "specify window width.");
         opts.addOption("height", "height", true, "specify window height.");
+        opts.addOption("viewports", "viewports", true, "specify comma separated window sizes to capture each page at, e.g. `1280x800,375x667`.");
+        opts.addOption("readiness", "readiness", true, "specify one of page readiness: sleep, adaptive. default is `sleep`.");
+        opts.addOption("journal", "journal", true, "specify directory to record crawl journal.");
+        opts.addOption("resume", "resume", true, "specify crawl journal directory to resume from.");
+        opts.addOption("preflight", "preflight", false, "specify to check urls with a HEAD request before loading them in the browser.");
+        opts.addOption("compare", "compare", true, "specify output directory of a previous run to compare the output directory with, instead of taking screen shots.");
+        opts.addOption("compareOutput", "compare-output", true, "specify directory to write comparison report and heatmaps. default is `diff`.");
+        opts.addOption("compareThreshold", "compare-threshold", true, "specify difference of a channel (0 - 255) up to which pixels are regarded as unchanged. default is 0.");
+        opts.addOption("linkGraph", "link-graph", true, "specify file to write the link graph to.");
+        opts.addOption("linkGraphSummary", "link-graph-summary", true, "specify link graph file to print degrees, orphan pages and broken links of, instead of taking screen shots.");
+        opts.addOption("linkGraphLimit", "link-graph-limit", true, "specify number of pages listed in each part of the link graph summary. default is 20.");
 
         final CommandLineParser parser = new DefaultParser();
         final CommandLine cl;
@@ -41,6 +53,10 @@ public class Main {
             } catch (YAMLException e) {
                 LOGGER.error(fileName + ": YAML load error", e);
                 return;
+            } catch (IllegalArgumentException e) {
+                // e.g. an include or exclude rule that does not compile, or an unknown frontier
+                LOGGER.error(fileName + ": invalid setting", e);
+                return;
             }
         } else {
             context = new TraverserContext();
@@ -82,6 +98,43 @@ public class Main {
             context.setHeight(Integer.parseInt(cl.getOptionValue("height")));
         }
 
-        TraverserDriver.run(context, cl.getArgList());
+        if (cl.hasOption("viewports")) {
+            context.getSetting().setViewports(Arrays.asList(cl.getOptionValue("viewports").split(",")));
+        }
+
+        if (cl.hasOption("readiness")) {
+            context.getSetting().setReadiness(cl.getOptionValue("readiness"));
+        }
+
+        if (cl.hasOption("journal")) {
+            context.setJournalDirectory(cl.getOptionValue("journal"));
+        }
+
+        if (cl.hasOption("resume")) {
+            context.setJournalDirectory(cl.getOptionValue("resume"));
+        }
+
+        if (cl.hasOption("preflight")) {
+            context.getSetting().setPreflight(true);
+        }
+
+        if (cl.hasOption("link-graph")) {
+            context.getSetting().setLinkGraph(cl.getOptionValue("link-graph"));
+        }
+
+        if (cl.hasOption("link-graph-summary")) {
+            LinkGraphSummary.run(cl.getOptionValue("link-graph-summary"),
+                    Integer.parseInt(cl.getOptionValue("link-graph-limit", String.valueOf(LinkGraphSummary.DEFAULT_LIMIT))));
+            return;
+        }
+
+        if (cl.hasOption("compare")) {
+            OutputComparator.run(cl.getOptionValue("compare"), context.getOutputDirectory(),
+                    cl.getOptionValue("compare-output", "diff"),
+                    Integer.parseInt(cl.getOptionValue("compare-threshold", String.valueOf(OutputComparator.DEFAULT_THRESHOLD))));
+            return;
+        }
+
+        TraverserDriver.run(context, cl.getArgList(), cl.hasOption("resume"));
     }
 }
@@ -0,0 +1,183 @@
+package org.ssproj;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent in each stage of a visit, and pages and errors per host and per worker.
+ *
+ * Every thread records into histograms of its own, so recording takes no lock; a
+ * {@link #snapshot} adds them up.
+ */
+public class Metrics {
+    public enum Stage {
+        PREFLIGHT, NAVIGATE, SETTLE, EXTRACT, CAPTURE, STITCH, WRITE, COMPRESS, COMMIT, VISIT;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final long started = System.currentTimeMillis();
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::register);
+    private final Map<String, Counter> hosts = new ConcurrentHashMap<>();
+
+    private static class Recorder {
+        private final String worker;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+        private volatile long pages;
+        private volatile long errors;
+
+        Recorder(String worker) {
+            this.worker = worker;
+            for (int i = 0; i < this.histograms.length; i++) {
+                this.histograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    public static class Counter {
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private long pagesValue;
+        private long errorsValue;
+
+        Counter() {
+        }
+
+        Counter(long pages, long errors) {
+            this.pagesValue = pages;
+            this.errorsValue = errors;
+        }
+
+        public long getPages() {
+            return this.pagesValue + this.pages.sum();
+        }
+
+        public long getErrors() {
+            return this.errorsValue + this.errors.sum();
+        }
+    }
+
+    public static class Snapshot {
+        private final long uptime;
+        private final Map<Stage, LatencyHistogram> stages = new TreeMap<>();
+        private final Map<String, Counter> hosts = new TreeMap<>();
+        private final Map<String, Counter> workers = new TreeMap<>();
+
+        Snapshot(long uptime) {
+            this.uptime = uptime;
+        }
+
+        /**
+         * @return milliseconds since the metrics were created
+         */
+        public long getUptime() {
+            return this.uptime;
+        }
+
+        public Map<Stage, LatencyHistogram> getStages() {
+            return this.stages;
+        }
+
+        public Map<String, Counter> getHosts() {
+            return this.hosts;
+        }
+
+        public Map<String, Counter> getWorkers() {
+            return this.workers;
+        }
+
+        public long getPages() {
+            long pages = 0;
+            for (Counter counter : this.workers.values()) {
+                pages += counter.getPages();
+            }
+            return pages;
+        }
+    }
+
+    private Recorder register() {
+        final Recorder created = new Recorder(Thread.currentThread().getName());
+        this.recorders.add(created);
+        return created;
+    }
+
+    /**
+     * @return the start of a stage, to be passed to {@link #record}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Stage stage, long start) {
+        this.recorder.get().histograms[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Counts a visited page for its host and the calling worker.
+     */
+    public void visited(URL url, boolean failed) {
+        final Recorder current = this.recorder.get();
+        final Counter host = this.hosts.computeIfAbsent(url.getHost(), key -> new Counter());
+        host.pages.increment();
+        current.pages++;
+        if (failed) {
+            host.errors.increment();
+            current.errors++;
+        }
+    }
+
+    public Snapshot snapshot() {
+        final Snapshot snapshot = new Snapshot(System.currentTimeMillis() - this.started);
+        for (Stage stage : Stage.values()) {
+            snapshot.stages.put(stage, new LatencyHistogram());
+        }
+
+        for (Recorder recorder : this.recorders) {
+            for (Stage stage : Stage.values()) {
+                snapshot.stages.get(stage).add(recorder.histograms[stage.ordinal()]);
+            }
+            if (recorder.pages > 0 || recorder.errors > 0) {
+                snapshot.workers.put(recorder.worker, new Counter(recorder.pages, recorder.errors));
+            }
+        }
+        for (Map.Entry<String, Counter> entry : this.hosts.entrySet()) {
+            snapshot.hosts.put(entry.getKey(), new Counter(entry.getValue().getPages(), entry.getValue().getErrors()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return a table of the stages with their count and latency percentiles in milliseconds
+     */
+    public String summary() {
+        final Snapshot snapshot = snapshot();
+        final StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "%-10s %10s %10s %10s %10s %10s %10s %12s%n",
+                "stage", "count", "mean", "p50", "p90", "p99", "max", "total"));
+        for (Map.Entry<Stage, LatencyHistogram> entry : snapshot.getStages().entrySet()) {
+            final LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            table.append(String.format(Locale.ROOT, "%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                    entry.getKey().label(), histogram.getCount(), histogram.getMean() / 1000,
+                    histogram.getPercentile(50) / 1000.0, histogram.getPercentile(90) / 1000.0,
+                    histogram.getPercentile(99) / 1000.0, histogram.getMax() / 1000.0, histogram.getSum() / 1000.0));
+        }
+
+        for (Map.Entry<String, Counter> entry : snapshot.getWorkers().entrySet()) {
+            table.append(String.format(Locale.ROOT, "%-30s %10d pages %6d errors%n", entry.getKey(),
+                    entry.getValue().getPages(), entry.getValue().getErrors()));
+        }
+        return table.toString();
+    }
+}
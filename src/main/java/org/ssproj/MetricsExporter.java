@@ -0,0 +1,180 @@
+package org.ssproj;
+
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link Metrics} every {@code interval} ms as one JSON line to {@code jsonFile} and in
+ * the Prometheus text format to {@code prometheusFile} (replaced atomically, for the textfile
+ * collector of node_exporter), and serves the latter on {@code http://127.0.0.1:port/metrics}
+ * if a port is given. Any of the three may be off.
+ */
+public class MetricsExporter implements Closeable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(MetricsExporter.class);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final Metrics metrics;
+    private final File jsonFile;
+    private final File prometheusFile;
+    private final ScheduledExecutorService scheduler;
+    private final HttpServer server;
+
+    public MetricsExporter(Metrics metrics, String jsonFile, String prometheusFile, int port, long interval) throws IOException {
+        this.metrics = metrics;
+        this.jsonFile = jsonFile != null ? new File(jsonFile) : null;
+        this.prometheusFile = prometheusFile != null ? new File(prometheusFile) : null;
+
+        if (port > 0) {
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            this.server.createContext("/metrics", exchange -> {
+                final byte[] body = prometheus(this.metrics.snapshot()).getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            });
+            this.server.start();
+            LOGGER.info("serving metrics on http://{}:{}/metrics", InetAddress.getLoopbackAddress().getHostAddress(), port);
+        } else {
+            this.server = null;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (this.jsonFile != null || this.prometheusFile != null) {
+            this.scheduler.scheduleWithFixedDelay(this::export, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void export() {
+        final Metrics.Snapshot snapshot = this.metrics.snapshot();
+        try {
+            if (this.jsonFile != null) {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.jsonFile, true), StandardCharsets.UTF_8))) {
+                    writer.write(json(snapshot));
+                    writer.write('\n');
+                }
+            }
+            if (this.prometheusFile != null) {
+                final File temporary = new File(this.prometheusFile.getPath() + ".tmp");
+                Files.write(temporary.toPath(), prometheus(snapshot).getBytes(StandardCharsets.UTF_8));
+                Files.move(temporary.toPath(), this.prometheusFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("failed to export metrics", e);
+        }
+    }
+
+    static String json(Metrics.Snapshot snapshot) {
+        final StringBuilder json = new StringBuilder();
+        json.append("{\"time\":").append(System.currentTimeMillis());
+        json.append(",\"uptime_ms\":").append(snapshot.getUptime());
+        json.append(",\"pages\":").append(snapshot.getPages());
+
+        json.append(",\"stages\":{");
+        String separator = "";
+        for (Map.Entry<Metrics.Stage, LatencyHistogram> entry : snapshot.getStages().entrySet()) {
+            final LatencyHistogram histogram = entry.getValue();
+            json.append(separator).append('"').append(entry.getKey().label()).append("\":");
+            json.append(String.format(Locale.ROOT, "{\"count\":%d,\"mean_ms\":%.3f,\"p50_ms\":%.3f,\"p90_ms\":%.3f,\"p99_ms\":%.3f,\"max_ms\":%.3f}",
+                    histogram.getCount(), histogram.getMean() / 1000, histogram.getPercentile(50) / 1000.0,
+                    histogram.getPercentile(90) / 1000.0, histogram.getPercentile(99) / 1000.0, histogram.getMax() / 1000.0));
+            separator = ",";
+        }
+        json.append('}');
+
+        json.append(",\"hosts\":");
+        counters(snapshot.getHosts(), json);
+        json.append(",\"workers\":");
+        counters(snapshot.getWorkers(), json);
+        return json.append('}').toString();
+    }
+
+    private static void counters(Map<String, Metrics.Counter> counters, StringBuilder json) {
+        json.append('{');
+        String separator = "";
+        for (Map.Entry<String, Metrics.Counter> entry : counters.entrySet()) {
+            json.append(separator).append('"').append(escape(entry.getKey())).append("\":");
+            json.append("{\"pages\":").append(entry.getValue().getPages())
+                    .append(",\"errors\":").append(entry.getValue().getErrors()).append('}');
+            separator = ",";
+        }
+        json.append('}');
+    }
+
+    static String prometheus(Metrics.Snapshot snapshot) {
+        final StringBuilder text = new StringBuilder();
+        text.append("# HELP screendump_stage_seconds Time spent in each stage of a visit.\n");
+        text.append("# TYPE screendump_stage_seconds summary\n");
+        for (Map.Entry<Metrics.Stage, LatencyHistogram> entry : snapshot.getStages().entrySet()) {
+            final String stage = entry.getKey().label();
+            final LatencyHistogram histogram = entry.getValue();
+            for (double quantile : QUANTILES) {
+                text.append(String.format(Locale.ROOT, "screendump_stage_seconds{stage=\"%s\",quantile=\"%s\"} %.6f%n",
+                        stage, quantile, histogram.getPercentile(quantile * 100) / 1e6));
+            }
+            text.append(String.format(Locale.ROOT, "screendump_stage_seconds_sum{stage=\"%s\"} %.6f%n", stage, histogram.getSum() / 1e6));
+            text.append(String.format(Locale.ROOT, "screendump_stage_seconds_count{stage=\"%s\"} %d%n", stage, histogram.getCount()));
+        }
+
+        text.append("# HELP screendump_pages_total Pages visited.\n");
+        text.append("# TYPE screendump_pages_total counter\n");
+        text.append("# HELP screendump_errors_total Pages that failed to load or capture.\n");
+        text.append("# TYPE screendump_errors_total counter\n");
+        counters("host", snapshot.getHosts(), text);
+        counters("worker", snapshot.getWorkers(), text);
+        return text.toString();
+    }
+
+    private static void counters(String label, Map<String, Metrics.Counter> counters, StringBuilder text) {
+        for (Map.Entry<String, Metrics.Counter> entry : counters.entrySet()) {
+            final String value = escape(entry.getKey());
+            text.append("screendump_pages_total{").append(label).append("=\"").append(value).append("\"} ")
+                    .append(entry.getValue().getPages()).append('\n');
+            text.append("screendump_errors_total{").append(label).append("=\"").append(value).append("\"} ")
+                    .append(entry.getValue().getErrors()).append('\n');
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Writes the final values and stops serving them.
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+        if (this.jsonFile != null || this.prometheusFile != null) {
+            export();
+        }
+        if (this.server != null) {
+            this.server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.ssproj;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the screen shots of two runs, matched by url. Byte-identical captures are not
+ * decoded at all; the others are compared with {@link VisualDiff} on a fixed pool of threads.
+ *
+ * Writes {@code report.tsv} (one line per url), {@code summary.txt} and a heatmap under
+ * {@code heatmaps/} for every changed page into the output directory.
+ */
+public class OutputComparator {
+    private final static Logger LOGGER = LoggerFactory.getLogger(OutputComparator.class);
+    public static final int DEFAULT_THRESHOLD = 0;
+    private static final String REPORT_FILE = "report.tsv";
+    private static final String SUMMARY_FILE = "summary.txt";
+    private static final String HEATMAP_DIRECTORY = "heatmaps";
+    private static final int TOP_CHANGES = 20;
+
+    private final File before;
+    private final File after;
+    private final File outputDirectory;
+    private final int threads;
+    private final VisualDiff diff;
+    private final AtomicLong progress = new AtomicLong();
+
+    public enum Status {
+        IDENTICAL, SAME, CHANGED, ADDED, REMOVED, ERROR;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static class Row {
+        private final String path;
+        private final Status status;
+        private final VisualDiff.Result result;
+
+        Row(String path, Status status, VisualDiff.Result result) {
+            this.path = path;
+            this.status = status;
+            this.result = result;
+        }
+    }
+
+    static {
+        ImageIO.setUseCache(false);
+    }
+
+    public OutputComparator(File before, File after, File outputDirectory, int threads, int threshold) {
+        this.before = before;
+        this.after = after;
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+        this.diff = new VisualDiff(threshold);
+    }
+
+    public static void run(String before, String after, String outputDirectory, int threshold) {
+        final OutputComparator comparator = new OutputComparator(new File(before), new File(after), new File(outputDirectory),
+                Runtime.getRuntime().availableProcessors(), threshold);
+        try {
+            comparator.compare();
+        } catch (IOException e) {
+            LOGGER.error("failed to compare " + before + " with " + after, e);
+        } catch (InterruptedException e) {
+            LOGGER.error("interrupted", e);
+        }
+    }
+
+    public void compare() throws IOException, InterruptedException {
+        final CaptureSet beforeSet = CaptureSet.load(this.before);
+        final CaptureSet afterSet = CaptureSet.load(this.after);
+        LOGGER.info("comparing {} screen shots in {} with {} in {}", beforeSet.size(), this.before, afterSet.size(), this.after);
+        if (!this.outputDirectory.exists() && !this.outputDirectory.mkdirs()) {
+            throw new IOException(this.outputDirectory + ": failed to create output directory");
+        }
+
+        final TreeSet<String> paths = new TreeSet<>(beforeSet.getCaptures().keySet());
+        paths.addAll(afterSet.getCaptures().keySet());
+
+        final List<Row> rows = new ArrayList<>(paths.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+        for (String path : paths) {
+            final CaptureSet.Capture a = beforeSet.getCaptures().get(path);
+            final CaptureSet.Capture b = afterSet.getCaptures().get(path);
+            executor.execute(() -> {
+                final Row row = compare(path, a, b);
+                synchronized (rows) {
+                    rows.add(row);
+                }
+                final long count = this.progress.incrementAndGet();
+                if (count % 1000 == 0) {
+                    LOGGER.info("{} / {} screen shots compared", count, paths.size());
+                }
+            });
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        rows.sort(Comparator.comparing(row -> row.path));
+        writeReport(rows);
+        writeSummary(rows);
+    }
+
+    private Row compare(String path, CaptureSet.Capture a, CaptureSet.Capture b) {
+        if (a == null) {
+            return new Row(path, Status.ADDED, null);
+        }
+        if (b == null) {
+            return new Row(path, Status.REMOVED, null);
+        }
+
+        try {
+            final byte[] bytesA = a.read();
+            final byte[] bytesB = b.read();
+            if (Arrays.equals(bytesA, bytesB)) {
+                return new Row(path, Status.IDENTICAL, null);
+            }
+
+            final BufferedImage imageA = ImageIO.read(new ByteArrayInputStream(bytesA));
+            final BufferedImage imageB = ImageIO.read(new ByteArrayInputStream(bytesB));
+            if (imageA == null || imageB == null) {
+                LOGGER.warn("{}: not a png", path);
+                return new Row(path, Status.ERROR, null);
+            }
+
+            final VisualDiff.Result result = this.diff.compare(imageA, imageB, true);
+            if (result.getChangedPixels() == 0) {
+                return new Row(path, Status.SAME, result.withoutHeatmap());
+            }
+
+            final File heatmap = new File(new File(this.outputDirectory, HEATMAP_DIRECTORY), path);
+            heatmap.getParentFile().mkdirs();
+            ImageIO.write(result.getHeatmap(), "png", heatmap);
+            return new Row(path, Status.CHANGED, result.withoutHeatmap());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn(path + ": failed to compare", e);
+            return new Row(path, Status.ERROR, null);
+        }
+    }
+
+    private void writeReport(List<Row> rows) throws IOException {
+        try (Writer writer = open(REPORT_FILE)) {
+            writer.write("status\tpath\tchanged_pixels\tchanged_ratio\tmean_difference\tssim\n");
+            for (Row row : rows) {
+                writer.write(row.status.toString());
+                writer.write('\t');
+                writer.write(row.path);
+                if (row.result != null) {
+                    writer.write(String.format(Locale.ROOT, "\t%d\t%.6f\t%.3f\t%.6f", row.result.getChangedPixels(),
+                            row.result.getChangedRatio(), row.result.getMeanDifference(), row.result.getSsim()));
+                } else if (row.status == Status.IDENTICAL) {
+                    writer.write("\t0\t0.000000\t0.000\t1.000000");
+                } else {
+                    writer.write("\t\t\t\t");
+                }
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void writeSummary(List<Row> rows) throws IOException {
+        final Map<Status, Long> counts = new EnumMap<>(Status.class);
+        final DescriptiveStatistics changedRatio = new DescriptiveStatistics();
+        final DescriptiveStatistics ssim = new DescriptiveStatistics();
+        final List<Row> changed = new ArrayList<>();
+        for (Row row : rows) {
+            counts.merge(row.status, 1L, Long::sum);
+            if (row.status == Status.IDENTICAL) {
+                changedRatio.addValue(0);
+                ssim.addValue(1);
+            } else if (row.result != null) {
+                changedRatio.addValue(row.result.getChangedRatio());
+                ssim.addValue(row.result.getSsim());
+            }
+            if (row.status == Status.CHANGED) {
+                changed.add(row);
+            }
+        }
+        changed.sort(Comparator.comparingDouble((Row row) -> row.result.getChangedRatio()).reversed());
+
+        try (Writer writer = open(SUMMARY_FILE)) {
+            writer.write("before: " + this.before + "\n");
+            writer.write("after: " + this.after + "\n");
+            for (Status status : Status.values()) {
+                writer.write(String.format(Locale.ROOT, "%s: %d\n", status, counts.getOrDefault(status, 0L)));
+            }
+
+            if (changedRatio.getN() > 0) {
+                writer.write(String.format(Locale.ROOT, "changed ratio: mean %.6f, 95th percentile %.6f, max %.6f\n",
+                        changedRatio.getMean(), changedRatio.getPercentile(95), changedRatio.getMax()));
+                writer.write(String.format(Locale.ROOT, "ssim: mean %.6f, 5th percentile %.6f, min %.6f\n",
+                        ssim.getMean(), ssim.getPercentile(5), ssim.getMin()));
+            }
+
+            if (!changed.isEmpty()) {
+                writer.write("most changed:\n");
+                for (Row row : changed.subList(0, Math.min(TOP_CHANGES, changed.size()))) {
+                    writer.write(String.format(Locale.ROOT, "  %.6f\t%s\n", row.result.getChangedRatio(), row.path));
+                }
+            }
+        }
+
+        LOGGER.info("{} identical, {} same, {} changed, {} added, {} removed, {} errors",
+                counts.getOrDefault(Status.IDENTICAL, 0L), counts.getOrDefault(Status.SAME, 0L),
+                counts.getOrDefault(Status.CHANGED, 0L), counts.getOrDefault(Status.ADDED, 0L),
+                counts.getOrDefault(Status.REMOVED, 0L), counts.getOrDefault(Status.ERROR, 0L));
+    }
+
+    private Writer open(String name) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(this.outputDirectory, name)), StandardCharsets.UTF_8));
+    }
+}
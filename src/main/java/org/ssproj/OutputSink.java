@@ -0,0 +1,52 @@
+package org.ssproj;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+
+/**
+ * Where screen shots end up. A capture is written to the file returned by {@link #getFile},
+ * compressed in place and then handed to {@link #commit}. Captures split into parts are
+ * written next to that file as {@code name-1.png}, {@code name-2.png}, ... and committed one
+ * by one.
+ *
+ * A file handed out by {@link #getFile} may still hold a capture of an earlier crawl, which
+ * may be a hard link shared with other captures. Writers replace it, deleting it before they
+ * create the new file, and never write into it.
+ */
+public interface OutputSink extends Closeable {
+    File getFile(URL url);
+
+    /**
+     * @return the file for a capture of {@code url} with {@code suffix} appended to its name,
+     *     e.g. {@code name@375x667.png} for one of several viewports
+     */
+    default File getFile(URL url, String suffix) {
+        final File file = getFile(url);
+        if (suffix.isEmpty()) {
+            return file;
+        }
+
+        final String name = file.getName();
+        final int dot = name.lastIndexOf('.');
+        return new File(file.getParentFile(), dot < 0 ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot));
+    }
+
+    /**
+     * @return a reference to the stored capture for {@link #commitDuplicate}, or null if
+     *     nothing was stored
+     */
+    String commit(File file) throws IOException;
+
+    /**
+     * Stores {@code file}, which has the same content as an earlier capture, as a reference to
+     * that capture instead of a copy. By default the file is replaced with a hard link to the
+     * path returned by {@link #commit}.
+     */
+    default void commitDuplicate(File file, String original) throws IOException {
+        Files.delete(file.toPath());
+        Files.createLink(file.toPath(), new File(original).toPath());
+    }
+}
@@ -0,0 +1,23 @@
+package org.ssproj;
+
+import java.io.File;
+import java.io.IOException;
+
+public class OutputSinkFactory {
+    public static OutputSink create(TraverseSetting setting) throws IOException {
+        final String type = setting.getOutputSink();
+        final File directory = new File(setting.getOutputDirectory());
+        final OutputSink sink;
+        if (type == null || type.equalsIgnoreCase("directory")) {
+            sink = new DirectorySink(directory);
+        } else if (type.equalsIgnoreCase("sharded")) {
+            sink = new ShardedDirectorySink(directory);
+        } else if (type.equalsIgnoreCase("zip")) {
+            sink = new ArchiveSink(directory, setting.getArchiveSegmentSize());
+        } else {
+            throw new IllegalArgumentException("unknown output sink: " + type);
+        }
+
+        return sink;
+    }
+}
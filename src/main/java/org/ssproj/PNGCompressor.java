@@ -6,6 +6,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Created by nakano_hideo on 2016/09/19.
@@ -13,13 +16,44 @@ import java.io.InputStream;
 public class PNGCompressor {
     private final static Logger LOGGER = LoggerFactory.getLogger(PNGCompressor.class);
     private final String command;
+    private final Metrics metrics;
 
     public PNGCompressor(String command) {
+        this(command, null);
+    }
+
+    /**
+     * @param metrics records the time of every invocation, may be null
+     */
+    public PNGCompressor(String command, Metrics metrics) {
         this.command = command;
+        this.metrics = metrics;
     }
 
     public boolean apply(final File file) throws InterruptedException {
-        final Process p = startProcess(file);
+        return apply(Collections.singletonList(file));
+    }
+
+    /**
+     * Compresses all files with one invocation of the command.
+     */
+    public boolean apply(final List<File> files) throws InterruptedException {
+        if (files.isEmpty()) {
+            return true;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            return compress(files);
+        } finally {
+            if (this.metrics != null) {
+                this.metrics.record(Metrics.Stage.COMPRESS, start);
+            }
+        }
+    }
+
+    private boolean compress(final List<File> files) throws InterruptedException {
+        final Process p = startProcess(files);
         if (p == null) {
             return false;
         }
@@ -43,8 +77,14 @@ public class PNGCompressor {
     }
 
     @org.jetbrains.annotations.Nullable
-    private Process startProcess(File file) {
-        final ProcessBuilder pb = new ProcessBuilder(this.command, "--speed", "1", "--ext", ".png", "--force", file.getAbsolutePath());
+    private Process startProcess(List<File> files) {
+        final List<String> commandLine = new ArrayList<>();
+        Collections.addAll(commandLine, this.command, "--speed", "1", "--ext", ".png", "--force");
+        for (File file : files) {
+            commandLine.add(file.getAbsolutePath());
+        }
+
+        final ProcessBuilder pb = new ProcessBuilder(commandLine);
         pb.redirectErrorStream(true);
         try {
             return pb.start();
@@ -0,0 +1,204 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and compresses screen shots off the browser threads.
+ *
+ * Browser workers hand over finished captures through a bounded queue, so they block once
+ * compression falls behind. Each post-processing thread takes up to {@code batchSize} files
+ * at a time and compresses them with a single pngquant invocation, then commits them to the
+ * output sink. Files that duplicate an earlier screen shot skip compression.
+ */
+public class PNGPostProcessor implements Closeable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(PNGPostProcessor.class);
+    private static final long POLL_TIMEOUT = 100;
+
+    private final BlockingQueue<Task> queue;
+    private final int batchSize;
+    private final String command;
+    private final OutputSink sink;
+    private final ContentDeduplicator deduplicator;
+    private final Metrics metrics;
+    private final Thread[] threads;
+    private volatile boolean closed;
+
+    public interface Saver {
+        void save(File file) throws IOException;
+    }
+
+    private static class Task {
+        private final File file;
+        private final Saver saver;
+
+        Task(File file, Saver saver) {
+            this.file = file;
+            this.saver = saver;
+        }
+    }
+
+    public PNGPostProcessor(String command, OutputSink sink, ContentDeduplicator deduplicator, int threads, int queueSize, int batchSize) {
+        this(command, sink, deduplicator, null, threads, queueSize, batchSize);
+    }
+
+    /**
+     * @param metrics records the time spent writing, compressing and committing, may be null
+     */
+    public PNGPostProcessor(String command, OutputSink sink, ContentDeduplicator deduplicator, Metrics metrics,
+                            int threads, int queueSize, int batchSize) {
+        this.command = command;
+        this.sink = sink;
+        this.deduplicator = deduplicator;
+        this.metrics = metrics;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < this.threads.length; i++) {
+            this.threads[i] = new Thread(this::run, "png-post-processor-" + i);
+            this.threads[i].start();
+        }
+    }
+
+    /**
+     * Queues a file that has already been written. Blocks while the queue is full.
+     */
+    public void submit(File file) throws InterruptedException {
+        submit(file, null);
+    }
+
+    /**
+     * Queues a file to be written by {@code saver} and then compressed. Blocks while the queue is full.
+     */
+    public void submit(File file, Saver saver) throws InterruptedException {
+        if (this.closed) {
+            throw new IllegalStateException("post processor is already closed");
+        }
+
+        this.queue.put(new Task(file, saver));
+    }
+
+    public int getPending() {
+        return this.queue.size();
+    }
+
+    private void run() {
+        final List<Task> batch = new ArrayList<>(this.batchSize);
+        for (;;) {
+            final Task task;
+            try {
+                task = this.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                LOGGER.info("interrupted");
+                break;
+            }
+
+            if (task == null) {
+                if (this.closed) {
+                    break;
+                }
+                continue;
+            }
+
+            batch.add(task);
+            this.queue.drainTo(batch, this.batchSize - 1);
+            try {
+                process(batch);
+            } catch (InterruptedException e) {
+                LOGGER.info("interrupted");
+                break;
+            } catch (RuntimeException e) {
+                LOGGER.info("unexpected exception", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private void process(List<Task> batch) throws InterruptedException {
+        final List<File> files = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            if (task.saver != null) {
+                final long start = System.nanoTime();
+                try {
+                    task.saver.save(task.file);
+                } catch (IOException e) {
+                    LOGGER.error("save error", e);
+                    continue;
+                }
+                record(Metrics.Stage.WRITE, start);
+            }
+
+            if (task.file.exists() && isUnique(task.file)) {
+                files.add(task.file);
+            }
+        }
+
+        if (this.command != null && !this.command.isEmpty()) {
+            new PNGCompressor(this.command, this.metrics).apply(files);
+        }
+
+        for (File file : files) {
+            if (this.sink != null) {
+                final long start = System.nanoTime();
+                try {
+                    final String reference = this.sink.commit(file);
+                    if (this.deduplicator != null) {
+                        this.deduplicator.committed(file, reference);
+                    }
+                    record(Metrics.Stage.COMMIT, start);
+                } catch (IOException e) {
+                    LOGGER.error(file + ": failed to commit screen shot", e);
+                    continue;
+                }
+            }
+            LOGGER.debug("saved screen shot: {}", file);
+        }
+    }
+
+    private void record(Metrics.Stage stage, long start) {
+        if (this.metrics != null) {
+            this.metrics.record(stage, start);
+        }
+    }
+
+    /**
+     * @return false if the file duplicates an earlier screen shot and needs no compression
+     */
+    private boolean isUnique(File file) {
+        if (this.deduplicator == null) {
+            return true;
+        }
+
+        try {
+            return this.deduplicator.offer(file);
+        } catch (IOException e) {
+            LOGGER.warn(file + ": failed to check for duplicates", e);
+            return true;
+        }
+    }
+
+    /**
+     * Waits until every queued file has been written and compressed.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        for (Thread thread : this.threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.ssproj;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Encodes an 8-bit RGB png one row at a time, so that only the current and the previous row are
+ * held in memory no matter how tall the image is.
+ */
+public class PNGStreamWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int BACKGROUND = 0xffffff;
+
+    private final DataOutputStream output;
+    private final ChunkOutputStream chunks;
+    private final DeflaterOutputStream idat;
+    private final Deflater deflater;
+    private final int width;
+    private final int height;
+    private byte[] previous;
+    private byte[] current;
+    private final byte[][] filtered = new byte[3][];
+    private int rows;
+
+    /**
+     * Replaces {@code file} rather than writing into it: a capture left by an earlier crawl may
+     * be a hard link shared with other captures.
+     */
+    public PNGStreamWriter(File file, int width, int height) throws IOException {
+        this(newOutputStream(file), width, height);
+    }
+
+    private static OutputStream newOutputStream(File file) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        return new FileOutputStream(file);
+    }
+
+    public PNGStreamWriter(OutputStream output, int width, int height) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(output, CHUNK_SIZE));
+        this.width = width;
+        this.height = height;
+        this.previous = new byte[width * 3];
+        this.current = new byte[width * 3];
+        for (int i = 0; i < this.filtered.length; i++) {
+            this.filtered[i] = new byte[width * 3 + 1];
+        }
+
+        this.output.write(SIGNATURE);
+        final byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;  // bit depth
+        header[9] = 2;  // color type: rgb
+        writeChunk("IHDR", header, header.length);
+
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.chunks = new ChunkOutputStream();
+        this.idat = new DeflaterOutputStream(this.chunks, this.deflater, CHUNK_SIZE);
+    }
+
+    public int getRows() {
+        return this.rows;
+    }
+
+    /**
+     * Writes one row of argb pixels. Alpha is ignored; pixels past {@code length} are filled
+     * with white.
+     */
+    public void writeRow(int[] argb, int offset, int length) throws IOException {
+        if (this.rows >= this.height) {
+            throw new IOException("all " + this.height + " rows have already been written");
+        }
+
+        final byte[] row = this.current;
+        for (int x = 0, i = 0; x < this.width; x++) {
+            final int pixel = x < length ? argb[offset + x] : BACKGROUND;
+            row[i++] = (byte) (pixel >> 16);
+            row[i++] = (byte) (pixel >> 8);
+            row[i++] = (byte) pixel;
+        }
+
+        this.idat.write(filter(row));
+        this.current = this.previous;
+        this.previous = row;
+        this.rows++;
+    }
+
+    /**
+     * Picks the None, Sub or Up filter with the smallest sum of absolute differences.
+     */
+    private byte[] filter(byte[] row) {
+        final byte[] none = this.filtered[0];
+        final byte[] sub = this.filtered[1];
+        final byte[] up = this.filtered[2];
+        none[0] = 0;
+        sub[0] = 1;
+        up[0] = 2;
+
+        long noneSum = 0;
+        long subSum = 0;
+        long upSum = 0;
+        final boolean first = this.rows == 0;
+        for (int i = 0; i < row.length; i++) {
+            final int value = row[i] & 0xff;
+            final int left = i >= 3 ? row[i - 3] & 0xff : 0;
+            final int above = first ? 0 : this.previous[i] & 0xff;
+
+            final byte n = (byte) value;
+            final byte s = (byte) (value - left);
+            final byte u = (byte) (value - above);
+            none[i + 1] = n;
+            sub[i + 1] = s;
+            up[i + 1] = u;
+            noneSum += Math.abs((int) n);
+            subSum += Math.abs((int) s);
+            upSum += Math.abs((int) u);
+        }
+
+        if (upSum <= subSum && upSum <= noneSum) {
+            return up;
+        }
+        return subSum <= noneSum ? sub : none;
+    }
+
+    /**
+     * Finishes the image. Rows that were never written are filled with white so that the
+     * file stays a valid png.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            final int[] blank = new int[0];
+            while (this.rows < this.height) {
+                writeRow(blank, 0, 0);
+            }
+
+            this.idat.finish();
+            this.chunks.flush();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            this.deflater.end();
+            this.output.close();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        final byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        final CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        this.output.writeInt(length);
+        this.output.write(typeBytes);
+        this.output.write(data, 0, length);
+        this.output.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Collects deflated bytes and emits them as IDAT chunks.
+     */
+    private class ChunkOutputStream extends OutputStream {
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int length;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.length == this.buffer.length) {
+                flush();
+            }
+            this.buffer[this.length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (this.length == this.buffer.length) {
+                    flush();
+                }
+                final int n = Math.min(len, this.buffer.length - this.length);
+                System.arraycopy(b, off, this.buffer, this.length, n);
+                this.length += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (this.length > 0) {
+                writeChunk("IDAT", this.buffer, this.length);
+                this.length = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
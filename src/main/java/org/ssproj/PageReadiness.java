@@ -0,0 +1,147 @@
+package org.ssproj;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Waits until a loaded page has settled instead of sleeping for a fixed time.
+ *
+ * A page is ready when {@code document.readyState} is complete, no fetch/XHR started after the
+ * first poll is pending, every image has loaded, the DOM has not changed for the quiet period
+ * and the number of loaded resources did not change since the previous poll. The configured
+ * sleep stays the upper bound. Observed settle times are averaged per host, and the first poll
+ * of a page is delayed by half of that estimate.
+ */
+public class PageReadiness {
+    private final static Logger LOGGER = LoggerFactory.getLogger(PageReadiness.class);
+    private static final double ESTIMATE_WEIGHT = 0.3;
+    private static final String SCRIPT =
+            "var w = window;" +
+            "if (!w.__screenDumpReadiness) {" +
+            "  var s = w.__screenDumpReadiness = {pending: 0, lastMutation: Date.now()};" +
+            "  var done = function() { s.pending = Math.max(0, s.pending - 1); };" +
+            "  var send = XMLHttpRequest.prototype.send;" +
+            "  XMLHttpRequest.prototype.send = function() {" +
+            "    s.pending++; this.addEventListener('loadend', done); return send.apply(this, arguments);" +
+            "  };" +
+            "  if (w.fetch) {" +
+            "    var f = w.fetch;" +
+            "    w.fetch = function() {" +
+            "      s.pending++;" +
+            "      return f.apply(this, arguments).then(function(r) { done(); return r; }, function(e) { done(); throw e; });" +
+            "    };" +
+            "  }" +
+            "  if (w.MutationObserver) {" +
+            "    new MutationObserver(function() { s.lastMutation = Date.now(); })" +
+            "      .observe(document, {childList: true, subtree: true, attributes: true, characterData: true});" +
+            "  }" +
+            "}" +
+            "var state = w.__screenDumpReadiness;" +
+            "var images = 0;" +
+            "for (var i = 0; i < document.images.length; i++) { if (!document.images[i].complete) images++; }" +
+            "var resources = w.performance && performance.getEntriesByType ? performance.getEntriesByType('resource').length : 0;" +
+            "return {readyState: document.readyState, pending: state.pending, images: images," +
+            "  quiet: Date.now() - state.lastMutation, resources: resources};";
+
+    private final long pollInterval;
+    private final long quietPeriod;
+    private final ConcurrentHashMap<String, Long> estimates = new ConcurrentHashMap<>();
+
+    public PageReadiness(long pollInterval, long quietPeriod) {
+        this.pollInterval = pollInterval;
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * @return milliseconds waited
+     */
+    public long await(WebDriver driver, URL url, long maxWait) throws InterruptedException {
+        return await(driver, url, maxWait, true);
+    }
+
+    /**
+     * Waits for a page that has been loaded already to settle again, e.g. after the window was
+     * resized. That takes a different time than a load, so it neither uses nor updates the
+     * estimate of the host.
+     *
+     * @return milliseconds waited
+     */
+    public long awaitSettled(WebDriver driver, URL url, long maxWait) throws InterruptedException {
+        return await(driver, url, maxWait, false);
+    }
+
+    private long await(WebDriver driver, URL url, long maxWait, boolean learn) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + maxWait;
+        final String host = url.getHost();
+
+        final Long estimate = learn ? this.estimates.get(host) : null;
+        if (estimate != null) {
+            Thread.sleep(Math.min(estimate / 2, maxWait));
+        }
+
+        long resources = -1;
+        for (;;) {
+            final long now = System.currentTimeMillis();
+            if (now >= deadline) {
+                break;
+            }
+
+            try {
+                final Object result = ((JavascriptExecutor) driver).executeScript(SCRIPT);
+                if (result instanceof Map) {
+                    final Map<?, ?> state = (Map<?, ?>) result;
+                    final long current = number(state.get("resources"));
+                    if (isReady(state, resources == current)) {
+                        final long elapsed = now - start;
+                        if (learn) {
+                            learn(host, elapsed);
+                        }
+                        LOGGER.debug("{}: ready after {} ms", url, elapsed);
+                        return elapsed;
+                    }
+                    resources = current;
+                }
+            } catch (WebDriverException e) {
+                // alerts, authentication dialogs or a page in the middle of navigating
+                LOGGER.debug("{}: readiness check failed", url, e);
+            }
+
+            Thread.sleep(Math.min(this.pollInterval, Math.max(1, deadline - System.currentTimeMillis())));
+        }
+
+        if (learn) {
+            learn(host, maxWait);
+        }
+        LOGGER.debug("{}: not settled within {} ms", url, maxWait);
+        return maxWait;
+    }
+
+    private boolean isReady(Map<?, ?> state, boolean resourcesStable) {
+        return "complete".equals(state.get("readyState"))
+                && number(state.get("pending")) == 0
+                && number(state.get("images")) == 0
+                && number(state.get("quiet")) >= this.quietPeriod
+                && resourcesStable;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    private void learn(String host, long elapsed) {
+        this.estimates.merge(host, elapsed, (previous, current) ->
+                Math.round(previous * (1 - ESTIMATE_WEIGHT) + current * ESTIMATE_WEIGHT));
+    }
+
+    public Long getEstimate(String host) {
+        return this.estimates.get(host);
+    }
+}
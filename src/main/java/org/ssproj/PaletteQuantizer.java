@@ -0,0 +1,451 @@
+package org.ssproj;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lossy in-process replacement for pngquant: reduces an image to a palette of at most
+ * {@code maxColors} colors and returns it as an indexed image, which ImageIO writes as a
+ * palette PNG.
+ *
+ * Images that already use few enough colors keep them exactly. Otherwise the palette is built
+ * by median cut over a 15-bit color histogram, optionally with Floyd-Steinberg dithering.
+ * Pixels with alpha below 128 are mapped to a single transparent palette entry.
+ */
+public class PaletteQuantizer {
+    private static final int HISTOGRAM_BITS = 5;
+    private static final int HISTOGRAM_SIZE = 1 << (HISTOGRAM_BITS * 3);
+    private static final int TRANSPARENT = -1;
+
+    private final int maxColors;
+    private final boolean dither;
+
+    public PaletteQuantizer(int maxColors, boolean dither) {
+        this.maxColors = Math.max(2, Math.min(256, maxColors));
+        this.dither = dither;
+    }
+
+    public BufferedImage apply(BufferedImage image) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] row = new int[width];
+
+        final Histogram histogram = new Histogram(this.maxColors);
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            histogram.add(row);
+        }
+
+        final boolean transparent = histogram.transparent;
+        final int colors = transparent ? this.maxColors - 1 : this.maxColors;
+        final Palette palette = histogram.exact != null && histogram.exact.size <= colors
+                ? Palette.exact(histogram.exact, transparent)
+                : Palette.medianCut(histogram, colors, transparent);
+
+        final BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, palette.colorModel());
+        final WritableRaster raster = output.getRaster();
+        final byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+
+        if (this.dither && !palette.isExact()) {
+            ditherTo(image, palette, pixels);
+        } else {
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                final int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    pixels[offset + x] = (byte) palette.indexOf(row[x]);
+                }
+            }
+        }
+
+        return output;
+    }
+
+    private static void ditherTo(BufferedImage image, Palette palette, byte[] pixels) {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final int[] row = new int[width];
+        // errors in 1/16 units for the current and the next row, with one pixel of padding on each side
+        int[] current = new int[(width + 2) * 3];
+        int[] next = new int[(width + 2) * 3];
+
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            final int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                final int argb = row[x];
+                if ((argb >>> 24) < 128) {
+                    pixels[offset + x] = (byte) palette.transparentIndex;
+                    continue;
+                }
+
+                final int e = (x + 1) * 3;
+                final int r = clamp(((argb >> 16) & 0xff) + current[e] / 16);
+                final int g = clamp(((argb >> 8) & 0xff) + current[e + 1] / 16);
+                final int b = clamp((argb & 0xff) + current[e + 2] / 16);
+
+                final int index = palette.nearest(r, g, b);
+                pixels[offset + x] = (byte) index;
+
+                final int er = r - palette.red[index];
+                final int eg = g - palette.green[index];
+                final int eb = b - palette.blue[index];
+                current[e + 3] += er * 7;
+                current[e + 4] += eg * 7;
+                current[e + 5] += eb * 7;
+                next[e - 3] += er * 3;
+                next[e - 2] += eg * 3;
+                next[e - 1] += eb * 3;
+                next[e] += er * 5;
+                next[e + 1] += eg * 5;
+                next[e + 2] += eb * 5;
+                next[e + 3] += er;
+                next[e + 4] += eg;
+                next[e + 5] += eb;
+            }
+
+            final int[] swap = current;
+            current = next;
+            next = swap;
+            Arrays.fill(next, 0);
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    private static int bin(int rgb) {
+        return ((rgb >> 9) & 0x7c00) | ((rgb >> 6) & 0x03e0) | ((rgb >> 3) & 0x001f);
+    }
+
+    /**
+     * Color counts per 15-bit bin, plus the exact colors as long as there are few of them.
+     */
+    private static final class Histogram {
+        private final int[] counts = new int[HISTOGRAM_SIZE];
+        private final long[] sumRed = new long[HISTOGRAM_SIZE];
+        private final long[] sumGreen = new long[HISTOGRAM_SIZE];
+        private final long[] sumBlue = new long[HISTOGRAM_SIZE];
+        private final int exactLimit;
+        private ColorTable exact = new ColorTable();
+        private boolean transparent;
+
+        Histogram(int exactLimit) {
+            this.exactLimit = exactLimit;
+        }
+
+        void add(int[] row) {
+            for (int argb : row) {
+                if ((argb >>> 24) < 128) {
+                    this.transparent = true;
+                    continue;
+                }
+
+                final int rgb = argb & 0xffffff;
+                final int bin = bin(rgb);
+                this.counts[bin]++;
+                this.sumRed[bin] += (rgb >> 16) & 0xff;
+                this.sumGreen[bin] += (rgb >> 8) & 0xff;
+                this.sumBlue[bin] += rgb & 0xff;
+
+                if (this.exact != null && this.exact.put(rgb) && this.exact.size > this.exactLimit) {
+                    this.exact = null;
+                }
+            }
+        }
+    }
+
+    private static final class Palette {
+        private final int[] red;
+        private final int[] green;
+        private final int[] blue;
+        private final int first;
+        private final int transparentIndex;
+        private final ColorTable exact;
+        private final int[] binIndex;
+        private final int[] nearestCache;
+        private int count;
+
+        private Palette(int capacity, boolean transparent, ColorTable exact) {
+            this.red = new int[capacity + 1];
+            this.green = new int[capacity + 1];
+            this.blue = new int[capacity + 1];
+            this.transparentIndex = transparent ? 0 : TRANSPARENT;
+            this.first = transparent ? 1 : 0;
+            this.exact = exact;
+            this.binIndex = exact == null ? new int[HISTOGRAM_SIZE] : null;
+            this.nearestCache = exact == null ? new int[HISTOGRAM_SIZE] : null;
+            if (this.nearestCache != null) {
+                Arrays.fill(this.nearestCache, -1);
+            }
+        }
+
+        static Palette exact(ColorTable colors, boolean transparent) {
+            final Palette palette = new Palette(colors.size, transparent, colors);
+            palette.count = palette.first;
+            for (int rgb : colors.keys) {
+                if (rgb == ColorTable.EMPTY) {
+                    continue;
+                }
+                final int index = palette.count++;
+                palette.red[index] = (rgb >> 16) & 0xff;
+                palette.green[index] = (rgb >> 8) & 0xff;
+                palette.blue[index] = rgb & 0xff;
+                colors.setValue(rgb, index);
+            }
+            return palette;
+        }
+
+        static Palette medianCut(Histogram histogram, int colors, boolean transparent) {
+            final Palette palette = new Palette(colors, transparent, null);
+            palette.count = palette.first;
+
+            int bins = 0;
+            for (int count : histogram.counts) {
+                if (count > 0) {
+                    bins++;
+                }
+            }
+            final int[] order = new int[bins];
+            bins = 0;
+            for (int bin = 0; bin < HISTOGRAM_SIZE; bin++) {
+                if (histogram.counts[bin] > 0) {
+                    order[bins++] = bin;
+                }
+            }
+
+            final List<Box> boxes = new ArrayList<>();
+            if (bins > 0) {
+                boxes.add(new Box(order, 0, bins, histogram.counts));
+            }
+            final int[] scratch = new int[bins];
+            while (boxes.size() < colors) {
+                Box widest = null;
+                for (Box box : boxes) {
+                    if (box.splittable() && (widest == null || box.score() > widest.score())) {
+                        widest = box;
+                    }
+                }
+                if (widest == null) {
+                    break;
+                }
+
+                boxes.remove(widest);
+                final Box[] halves = widest.split(order, scratch, histogram.counts);
+                boxes.add(halves[0]);
+                boxes.add(halves[1]);
+            }
+
+            for (Box box : boxes) {
+                final int index = palette.count++;
+                long count = 0, r = 0, g = 0, b = 0;
+                for (int i = box.from; i < box.to; i++) {
+                    final int bin = order[i];
+                    count += histogram.counts[bin];
+                    r += histogram.sumRed[bin];
+                    g += histogram.sumGreen[bin];
+                    b += histogram.sumBlue[bin];
+                    palette.binIndex[bin] = index;
+                }
+                palette.red[index] = (int) (r / count);
+                palette.green[index] = (int) (g / count);
+                palette.blue[index] = (int) (b / count);
+            }
+            return palette;
+        }
+
+        boolean isExact() {
+            return this.exact != null;
+        }
+
+        int indexOf(int argb) {
+            if ((argb >>> 24) < 128) {
+                return this.transparentIndex;
+            }
+            if (this.exact != null) {
+                return this.exact.getValue(argb & 0xffffff);
+            }
+            return this.binIndex[bin(argb)];
+        }
+
+        int nearest(int r, int g, int b) {
+            final int bin = ((r << 7) & 0x7c00) | ((g << 2) & 0x03e0) | (b >> 3);
+            int index = this.nearestCache[bin];
+            if (index >= 0) {
+                return index;
+            }
+
+            // search with the center of the bin so that the cached answer suits the whole bin
+            final int cr = (r & 0xf8) | 4;
+            final int cg = (g & 0xf8) | 4;
+            final int cb = (b & 0xf8) | 4;
+            int best = Integer.MAX_VALUE;
+            for (int i = this.first; i < this.count; i++) {
+                final int dr = this.red[i] - cr;
+                final int dg = this.green[i] - cg;
+                final int db = this.blue[i] - cb;
+                final int distance = dr * dr + dg * dg + db * db;
+                if (distance < best) {
+                    best = distance;
+                    index = i;
+                }
+            }
+            this.nearestCache[bin] = index;
+            return index;
+        }
+
+        IndexColorModel colorModel() {
+            final int size = Math.max(1, this.count);
+            final byte[] r = new byte[size];
+            final byte[] g = new byte[size];
+            final byte[] b = new byte[size];
+            for (int i = 0; i < this.count; i++) {
+                r[i] = (byte) this.red[i];
+                g[i] = (byte) this.green[i];
+                b[i] = (byte) this.blue[i];
+            }
+            return new IndexColorModel(8, size, r, g, b, this.transparentIndex);
+        }
+    }
+
+    private static final class Box {
+        private final int from;
+        private final int to;
+        private final long population;
+        private final int[] min = new int[3];
+        private final int[] max = new int[3];
+
+        Box(int[] order, int from, int to, int[] counts) {
+            this.from = from;
+            this.to = to;
+            long population = 0;
+            for (int c = 0; c < 3; c++) {
+                this.min[c] = Integer.MAX_VALUE;
+                this.max[c] = Integer.MIN_VALUE;
+            }
+            for (int i = from; i < to; i++) {
+                final int bin = order[i];
+                population += counts[bin];
+                for (int c = 0; c < 3; c++) {
+                    final int value = channel(bin, c);
+                    this.min[c] = Math.min(this.min[c], value);
+                    this.max[c] = Math.max(this.max[c], value);
+                }
+            }
+            this.population = population;
+        }
+
+        static int channel(int bin, int c) {
+            return (bin >> (HISTOGRAM_BITS * (2 - c))) & ((1 << HISTOGRAM_BITS) - 1);
+        }
+
+        int widestChannel() {
+            int widest = 0;
+            for (int c = 1; c < 3; c++) {
+                if (this.max[c] - this.min[c] > this.max[widest] - this.min[widest]) {
+                    widest = c;
+                }
+            }
+            return widest;
+        }
+
+        boolean splittable() {
+            return this.to - this.from > 1;
+        }
+
+        double score() {
+            final int c = widestChannel();
+            return (double) (this.max[c] - this.min[c] + 1) * this.population;
+        }
+
+        Box[] split(int[] order, int[] scratch, int[] counts) {
+            final int c = widestChannel();
+
+            // counting sort of the bins along the widest channel
+            final int[] starts = new int[(1 << HISTOGRAM_BITS) + 1];
+            for (int i = this.from; i < this.to; i++) {
+                starts[channel(order[i], c) + 1]++;
+            }
+            for (int v = 1; v < starts.length; v++) {
+                starts[v] += starts[v - 1];
+            }
+            for (int i = this.from; i < this.to; i++) {
+                final int bin = order[i];
+                scratch[this.from + starts[channel(bin, c)]++] = bin;
+            }
+            System.arraycopy(scratch, this.from, order, this.from, this.to - this.from);
+
+            // split at the weighted median, keeping at least one bin on each side
+            long half = this.population / 2;
+            int at = this.from + 1;
+            long seen = counts[order[this.from]];
+            while (at < this.to - 1 && seen < half) {
+                seen += counts[order[at]];
+                at++;
+            }
+
+            return new Box[]{new Box(order, this.from, at, counts), new Box(order, at, this.to, counts)};
+        }
+    }
+
+    /**
+     * Small open-addressed rgb to index table used while an image still fits the palette exactly.
+     */
+    private static final class ColorTable {
+        private static final int EMPTY = -1;
+        private int[] keys = new int[64];
+        private int[] values = new int[64];
+        private int size;
+
+        ColorTable() {
+            Arrays.fill(this.keys, EMPTY);
+        }
+
+        private int slot(int rgb) {
+            final int mask = this.keys.length - 1;
+            int index = (rgb * 0x9e3779b1) >>> 16 & mask;
+            while (this.keys[index] != EMPTY && this.keys[index] != rgb) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        boolean put(int rgb) {
+            int index = slot(rgb);
+            if (this.keys[index] == rgb) {
+                return false;
+            }
+
+            if ((this.size + 1) * 2 > this.keys.length) {
+                final int[] keys = this.keys;
+                this.keys = new int[keys.length * 2];
+                this.values = new int[keys.length * 2];
+                Arrays.fill(this.keys, EMPTY);
+                for (int key : keys) {
+                    if (key != EMPTY) {
+                        this.keys[slot(key)] = key;
+                    }
+                }
+                index = slot(rgb);
+            }
+
+            this.keys[index] = rgb;
+            this.size++;
+            return true;
+        }
+
+        void setValue(int rgb, int value) {
+            this.values[slot(rgb)] = value;
+        }
+
+        int getValue(int rgb) {
+            return this.values[slot(rgb)];
+        }
+    }
+}
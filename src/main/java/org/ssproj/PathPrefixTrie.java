@@ -0,0 +1,87 @@
+package org.ssproj;
+
+import java.util.Arrays;
+
+/**
+ * Set of path prefixes. {@link #matches} walks the path once, whatever the number of
+ * prefixes, and does not allocate.
+ */
+public class PathPrefixTrie {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final class Node {
+        // sorted, for binary search
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private boolean terminal;
+
+        Node child(char c) {
+            final int index = Arrays.binarySearch(this.keys, c);
+            return index >= 0 ? this.children[index] : null;
+        }
+
+        Node addChild(char c) {
+            int index = Arrays.binarySearch(this.keys, c);
+            if (index >= 0) {
+                return this.children[index];
+            }
+
+            index = -index - 1;
+            final char[] keys = new char[this.keys.length + 1];
+            final Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.keys, 0, keys, 0, index);
+            System.arraycopy(this.children, 0, children, 0, index);
+            System.arraycopy(this.keys, index, keys, index + 1, this.keys.length - index);
+            System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+            keys[index] = c;
+            children[index] = new Node();
+            this.keys = keys;
+            this.children = children;
+            return children[index];
+        }
+    }
+
+    private final Node root = new Node();
+    private int size;
+
+    public void add(String prefix) {
+        Node node = this.root;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.addChild(prefix.charAt(i));
+        }
+        if (!node.terminal) {
+            node.terminal = true;
+            this.size++;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @return true if one of the prefixes is a prefix of {@code path}
+     */
+    public boolean matches(String path) {
+        Node node = this.root;
+        if (node.terminal) {
+            return true;
+        }
+
+        for (int i = 0; i < path.length(); i++) {
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
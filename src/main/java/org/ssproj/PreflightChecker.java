@@ -0,0 +1,152 @@
+package org.ssproj;
+
+import org.apache.http.Header;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends a HEAD request before a url is loaded in the browser, over a connection pool shared by
+ * all workers. Urls that answer with an error status or a content type the browser would not
+ * render as a page are skipped, and redirects are resolved so that the browser loads the final
+ * url directly. Servers that do not support HEAD get a GET for the first byte instead.
+ *
+ * Any failure of the request itself lets the url through: the browser has the last word.
+ * The browser's cookies are not sent, so 401 and 407 are let through as well.
+ */
+public class PreflightChecker implements Closeable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(PreflightChecker.class);
+    private static final int MAX_REDIRECTS = 10;
+
+    private final CloseableHttpClient client;
+    private final List<String> contentTypes;
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong redirected = new AtomicLong();
+
+    public PreflightChecker(int maxConnections, int timeout, List<String> contentTypes) {
+        final PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnections);
+
+        final RequestConfig config = RequestConfig.custom()
+                .setConnectTimeout(timeout)
+                .setConnectionRequestTimeout(timeout)
+                .setSocketTimeout(timeout)
+                .setMaxRedirects(MAX_REDIRECTS)
+                .build();
+        this.client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(config)
+                .build();
+        this.contentTypes = contentTypes;
+    }
+
+    /**
+     * @return the url the browser should load, which differs from {@code url} if it redirects,
+     *     or null if it should be skipped
+     */
+    public URL check(URL url) {
+        final URI uri;
+        try {
+            uri = url.toURI();
+        } catch (URISyntaxException e) {
+            LOGGER.debug("{}: not checked, {}", url, e.getMessage());
+            return url;
+        }
+
+        final HttpClientContext context = HttpClientContext.create();
+        try {
+            int status = execute(new HttpHead(uri), context, url);
+            if (status == HttpStatus.SC_METHOD_NOT_ALLOWED || status == HttpStatus.SC_NOT_IMPLEMENTED) {
+                final HttpGet get = new HttpGet(uri);
+                get.setHeader("Range", "bytes=0-0");
+                status = execute(get, context, url);
+            }
+            if (status < 0) {
+                this.skipped.incrementAndGet();
+                return null;
+            }
+        } catch (IOException e) {
+            LOGGER.debug("{}: not checked, {}", url, e.toString());
+            return url;
+        }
+
+        final List<URI> redirects = context.getRedirectLocations();
+        if (redirects == null || redirects.isEmpty()) {
+            return url;
+        }
+
+        final URI location = redirects.get(redirects.size() - 1);
+        try {
+            final URL redirect = location.toURL();
+            LOGGER.debug("{}: redirects to {}", url, redirect);
+            this.redirected.incrementAndGet();
+            return redirect;
+        } catch (MalformedURLException | IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    /**
+     * @return the status code, or -1 if the url has to be skipped
+     */
+    private int execute(HttpRequestBase request, HttpClientContext context, URL url) throws IOException {
+        try (CloseableHttpResponse response = this.client.execute(request, context)) {
+            final int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_METHOD_NOT_ALLOWED || status == HttpStatus.SC_NOT_IMPLEMENTED) {
+                return status;
+            }
+            if (status >= HttpStatus.SC_BAD_REQUEST
+                    && status != HttpStatus.SC_UNAUTHORIZED && status != HttpStatus.SC_PROXY_AUTHENTICATION_REQUIRED) {
+                LOGGER.info("{}: skipped, status {}", url, status);
+                return -1;
+            }
+
+            final Header header = response.getFirstHeader("Content-Type");
+            if (header != null && !acceptsContentType(header.getValue())) {
+                LOGGER.info("{}: skipped, content type {}", url, header.getValue());
+                return -1;
+            }
+            // the body of a ranged GET is not read; closing the response discards its connection
+            return status;
+        }
+    }
+
+    private boolean acceptsContentType(String value) {
+        final int separator = value.indexOf(';');
+        final String type = (separator >= 0 ? value.substring(0, separator) : value).trim().toLowerCase(Locale.ROOT);
+        return type.isEmpty() || this.contentTypes.contains(type);
+    }
+
+    public long getSkipped() {
+        return this.skipped.get();
+    }
+
+    public long getRedirected() {
+        return this.redirected.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.client.close();
+    }
+}
@@ -0,0 +1,251 @@
+package org.ssproj;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out urls in the order of a {@link FrontierPolicy}.
+ *
+ * A url is queued once. Discovering it again while it is queued counts one more inbound link
+ * and keeps the smallest depth seen, and its position in the heap is fixed in place, so an
+ * update costs O(log n) however many urls are waiting.
+ */
+public class PriorityFrontier implements Frontier {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FrontierPolicy policy;
+    private final Map<String, Entry> queued = new HashMap<>();
+    private final Map<String, Entry> active = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private Entry[] heap = new Entry[INITIAL_CAPACITY];
+    private int size;
+    private long sequence;
+    private int inFlight;
+    private boolean finishing;
+
+    private static final class Entry {
+        private final URL url;
+        private final long sequence;
+        private int depth;
+        private int inlinks;
+        private long priority;
+        private int index;
+
+        Entry(URL url, int depth, long sequence) {
+            this.url = url;
+            this.depth = depth;
+            this.sequence = sequence;
+        }
+    }
+
+    public PriorityFrontier(FrontierPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public void put(URL url, int depth) {
+        if (!this.policy.accepts(depth)) {
+            return;
+        }
+
+        final String key = url.toString();
+        this.lock.lock();
+        try {
+            Entry entry = this.queued.get(key);
+            if (entry == null) {
+                entry = new Entry(url, depth, this.sequence++);
+                entry.inlinks = depth > 0 ? 1 : 0;
+                entry.priority = this.policy.priority(entry.depth, entry.inlinks);
+                this.queued.put(key, entry);
+                offer(entry);
+                this.notEmpty.signal();
+                return;
+            }
+
+            entry.depth = Math.min(entry.depth, depth);
+            if (depth > 0) {
+                entry.inlinks++;
+            }
+            final long priority = this.policy.priority(entry.depth, entry.inlinks);
+            if (priority < entry.priority) {
+                entry.priority = priority;
+                siftUp(entry.index, entry);
+            } else if (priority > entry.priority) {
+                entry.priority = priority;
+                siftDown(entry.index, entry);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public URL poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        try {
+            while (this.size == 0) {
+                if (nanos <= 0 || finished()) {
+                    return null;
+                }
+                nanos = this.notEmpty.awaitNanos(nanos);
+            }
+
+            final Entry entry = this.heap[0];
+            final Entry last = this.heap[--this.size];
+            this.heap[this.size] = null;
+            if (this.size > 0) {
+                siftDown(0, last);
+            }
+
+            final String key = entry.url.toString();
+            this.queued.remove(key);
+            this.active.put(key, entry);
+            this.inFlight++;
+            return entry.url;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void done(URL url) {
+        this.lock.lock();
+        try {
+            this.active.remove(url.toString());
+            this.inFlight--;
+            if (finished()) {
+                this.notEmpty.signalAll();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void finish() {
+        this.lock.lock();
+        try {
+            this.finishing = true;
+            this.notEmpty.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        this.lock.lock();
+        try {
+            return finished();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean finished() {
+        // counted separately from the active map, which holds a url polled twice only once
+        return this.finishing && this.inFlight == 0 && this.size == 0;
+    }
+
+    @Override
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<URL> toList() {
+        this.lock.lock();
+        try {
+            final List<URL> urls = new ArrayList<>(this.size + this.active.size());
+            for (int i = 0; i < this.size; i++) {
+                urls.add(this.heap[i].url);
+            }
+            for (Entry entry : this.active.values()) {
+                urls.add(entry.url);
+            }
+            return urls;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public int depth(URL url) {
+        final String key = url.toString();
+        this.lock.lock();
+        try {
+            Entry entry = this.active.get(key);
+            if (entry == null) {
+                entry = this.queued.get(key);
+            }
+            return entry != null ? entry.depth : 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean accepts(int depth) {
+        return this.policy.accepts(depth);
+    }
+
+    private void offer(Entry entry) {
+        if (this.size == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+        }
+        siftUp(this.size++, entry);
+    }
+
+    private static boolean before(Entry a, Entry b) {
+        return a.priority < b.priority || (a.priority == b.priority && a.sequence < b.sequence);
+    }
+
+    private void siftUp(int index, Entry entry) {
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            final Entry p = this.heap[parent];
+            if (!before(entry, p)) {
+                break;
+            }
+            this.heap[index] = p;
+            p.index = index;
+            index = parent;
+        }
+        this.heap[index] = entry;
+        entry.index = index;
+    }
+
+    private void siftDown(int index, Entry entry) {
+        final int half = this.size >>> 1;
+        while (index < half) {
+            int child = (index << 1) + 1;
+            final int right = child + 1;
+            if (right < this.size && before(this.heap[right], this.heap[child])) {
+                child = right;
+            }
+            final Entry c = this.heap[child];
+            if (!before(c, entry)) {
+                break;
+            }
+            this.heap[index] = c;
+            c.index = index;
+            index = child;
+        }
+        this.heap[index] = entry;
+        entry.index = index;
+    }
+}
@@ -0,0 +1,93 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * One png per url, named after the SHA-1 of the url and spread over 65536 directories
+ * ({@code ab/cd/abcd....png}), so that no directory grows large. {@code index.tsv} maps each
+ * file to its url.
+ */
+public class ShardedDirectorySink implements OutputSink {
+    private final static Logger LOGGER = LoggerFactory.getLogger(ShardedDirectorySink.class);
+    private static final String INDEX_FILE = "index.tsv";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+    private final Writer index;
+
+    public ShardedDirectorySink(File directory) throws IOException {
+        this.directory = directory;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException(directory + ": failed to create output directory");
+        }
+        this.index = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, INDEX_FILE), true), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public File getFile(URL url) {
+        return getFile(url, "");
+    }
+
+    @Override
+    public File getFile(URL url, String suffix) {
+        final String hash = sha1(url.toString());
+        final File outputDirectory = new File(new File(this.directory, hash.substring(0, 2)), hash.substring(2, 4));
+        if (!outputDirectory.exists()) {
+            outputDirectory.mkdirs();
+        }
+
+        final File outputFile = new File(outputDirectory, hash + suffix + ".png");
+        synchronized (this) {
+            try {
+                this.index.write(hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + outputFile.getName());
+                this.index.write('\t');
+                this.index.write(url.toString());
+                this.index.write('\n');
+            } catch (IOException e) {
+                LOGGER.warn("failed to write output index", e);
+            }
+        }
+        return outputFile;
+    }
+
+    private static String sha1(String value) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final byte[] bytes = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @Override
+    public String commit(File file) {
+        return file.exists() ? file.getPath() : null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.index.close();
+    }
+}
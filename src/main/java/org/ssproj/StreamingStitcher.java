@@ -0,0 +1,103 @@
+package org.ssproj;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stitches viewport captures into a full-page png while they arrive, top to bottom.
+ *
+ * Rows are encoded as soon as a segment covers them, so only one segment and one encoder row
+ * are in memory. When {@code maxPartHeight} is positive, pages taller than that are split into
+ * {@code name-1.png}, {@code name-2.png}, ...
+ */
+public class StreamingStitcher implements Closeable {
+    private final File file;
+    private final int width;
+    private final int height;
+    private final int partHeight;
+    private final int parts;
+    private final List<File> files = new ArrayList<>();
+    private final int[] row;
+    private PNGStreamWriter writer;
+    private int written;
+
+    public StreamingStitcher(File file, int width, int height, int maxPartHeight) {
+        this.file = file;
+        this.width = width;
+        this.height = height;
+        this.partHeight = maxPartHeight > 0 ? maxPartHeight : height;
+        this.parts = Math.max(1, (height + this.partHeight - 1) / this.partHeight);
+        this.row = new int[width];
+    }
+
+    /**
+     * @return the part files written so far
+     */
+    public List<File> getFiles() {
+        return this.files;
+    }
+
+    public boolean isComplete() {
+        return this.written >= this.height;
+    }
+
+    /**
+     * Appends the rows of {@code segment} that are not written yet. {@code top} is the
+     * position of the segment on the page, in device pixels.
+     */
+    public void append(BufferedImage segment, int top) throws IOException {
+        final int from = Math.max(this.written, top);
+        final int to = Math.min(this.height, top + segment.getHeight());
+        final int length = Math.min(this.width, segment.getWidth());
+        for (int y = from; y < to; y++) {
+            segment.getRGB(0, y - top, length, 1, this.row, 0, length);
+            writer().writeRow(this.row, 0, length);
+            this.written++;
+        }
+    }
+
+    private PNGStreamWriter writer() throws IOException {
+        if (this.writer != null && this.writer.getRows() >= this.partHeight) {
+            this.writer.close();
+            this.writer = null;
+        }
+
+        if (this.writer == null) {
+            final int part = this.files.size() + 1;
+            final File partFile = this.parts == 1 ? this.file : partFile(this.file, part);
+            final int partRows = Math.min(this.partHeight, this.height - this.written);
+            this.writer = new PNGStreamWriter(partFile, this.width, partRows);
+            this.files.add(partFile);
+        }
+
+        return this.writer;
+    }
+
+    public static File partFile(File file, int part) {
+        String name = file.getName();
+        if (name.endsWith(".png")) {
+            name = name.substring(0, name.length() - ".png".length());
+        }
+        return new File(file.getParentFile(), name + "-" + part + ".png");
+    }
+
+    /**
+     * Finishes the current part. Rows no segment covered are left white.
+     */
+    @Override
+    public void close() throws IOException {
+        while (this.written < this.height) {
+            writer().writeRow(this.row, 0, 0);
+            this.written++;
+        }
+
+        if (this.writer != null) {
+            this.writer.close();
+            this.writer = null;
+        }
+    }
+}
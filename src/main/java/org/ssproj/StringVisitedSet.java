@@ -0,0 +1,74 @@
+package org.ssproj;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps full url strings. Exact, but every entry costs the string plus a hash table node.
+ */
+public class StringVisitedSet implements VisitedSet {
+    // string header + char array header + table node, roughly
+    private static final long ENTRY_OVERHEAD = 24 + 16 + 32;
+    private static final int END_OF_ENTRIES = -1;
+    private final Set<String> set = ConcurrentHashMap.newKeySet();
+    private final AtomicLong chars = new AtomicLong();
+
+    @Override
+    public boolean add(String url) {
+        if (!this.set.add(url)) {
+            return false;
+        }
+
+        this.chars.addAndGet(url.length());
+        return true;
+    }
+
+    @Override
+    public boolean contains(String url) {
+        return this.set.contains(url);
+    }
+
+    @Override
+    public boolean remove(String url) {
+        if (!this.set.remove(url)) {
+            return false;
+        }
+
+        this.chars.addAndGet(-url.length());
+        return true;
+    }
+
+    @Override
+    public long size() {
+        return this.set.size();
+    }
+
+    @Override
+    public long memoryUsage() {
+        return size() * ENTRY_OVERHEAD + this.chars.get() * 2;
+    }
+
+    @Override
+    public void save(DataOutputStream output) throws IOException {
+        for (String url : this.set) {
+            final byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+        output.writeInt(END_OF_ENTRIES);
+    }
+
+    @Override
+    public void load(DataInputStream input) throws IOException {
+        for (int length = input.readInt(); length != END_OF_ENTRIES; length = input.readInt()) {
+            final byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            add(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+}
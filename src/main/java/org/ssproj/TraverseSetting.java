@@ -8,8 +8,10 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class TraverseSetting {
     public static final boolean DEFAULT_RECURSIVELY = false;
@@ -21,6 +23,34 @@ public class TraverseSetting {
     public static final long DEFAULT_SLEEP = 500;
     public static final int DEFAULT_WIDTH = 0;
     public static final int DEFAULT_HEIGHT = 0;
+    public static final long DEFAULT_JOURNAL_SNAPSHOT_INTERVAL = 10000;
+    public static final String DEFAULT_VISITED_SET = "string";
+    public static final long DEFAULT_VISITED_SET_EXPECTED_SIZE = 100000;
+    public static final int DEFAULT_COMPRESSION_THREADS = 2;
+    public static final int DEFAULT_COMPRESSION_QUEUE_SIZE = 32;
+    public static final int DEFAULT_COMPRESSION_BATCH_SIZE = 8;
+    public static final String DEFAULT_PNG_COMPRESSOR = "pngquant";
+    public static final int DEFAULT_QUANTIZE_COLORS = 256;
+    public static final String DEFAULT_STITCH_MODE = "image";
+    public static final int DEFAULT_MAX_IMAGE_HEIGHT = 0;
+    public static final String DEFAULT_READINESS = "sleep";
+    public static final long DEFAULT_READINESS_POLL_INTERVAL = 100;
+    public static final long DEFAULT_READINESS_QUIET_PERIOD = 300;
+    public static final String DEFAULT_FRONTIER = "fifo";
+    public static final int DEFAULT_HOST_MAX_CONCURRENCY = 0;
+    public static final long DEFAULT_HOST_MIN_DELAY = 0;
+    public static final String DEFAULT_FRONTIER_POLICY = "bfs";
+    public static final int DEFAULT_MAX_DEPTH = 0;
+    public static final String DEFAULT_ANCHOR_EXTRACTION = "element";
+    public static final String DEFAULT_OUTPUT_SINK = "directory";
+    public static final long DEFAULT_ARCHIVE_SEGMENT_SIZE = 1024L * 1024 * 1024;
+    public static final int DEFAULT_PREFLIGHT_TIMEOUT = 10000;
+    public static final long DEFAULT_DRIVER_RECYCLE_PAGES = 0;
+    public static final long DEFAULT_DRIVER_MEMORY_LIMIT = 0;
+    public static final int DEFAULT_VISIT_RETRIES = 2;
+    public static final int DEFAULT_TABS = 1;
+    public static final long DEFAULT_METRICS_INTERVAL = 10000;
+    public static final long DEFAULT_VIEWPORT_SLEEP = 300;
     private final static Logger LOGGER = LoggerFactory.getLogger(TraverseSetting.class);
 
     private boolean recursively = DEFAULT_RECURSIVELY;
@@ -36,8 +66,54 @@ public class TraverseSetting {
     private List<String> accessibleDomains = Collections.emptyList();
     private List<String> extractableDomains = Collections.emptyList();
     private List<String> excludePaths = Collections.emptyList();
+    private List<String> includePaths = Collections.emptyList();
     private List<String> allowSuffixes = Collections.emptyList();
     private String pngQuant;
+    private String journalDirectory;
+    private long journalSnapshotInterval = DEFAULT_JOURNAL_SNAPSHOT_INTERVAL;
+    private String visitedSet = DEFAULT_VISITED_SET;
+    private long visitedSetExpectedSize = DEFAULT_VISITED_SET_EXPECTED_SIZE;
+    private boolean visitedSetBloomFilter;
+    private int compressionThreads = DEFAULT_COMPRESSION_THREADS;
+    private int compressionQueueSize = DEFAULT_COMPRESSION_QUEUE_SIZE;
+    private int compressionBatchSize = DEFAULT_COMPRESSION_BATCH_SIZE;
+    private String pngCompressor = DEFAULT_PNG_COMPRESSOR;
+    private int quantizeColors = DEFAULT_QUANTIZE_COLORS;
+    private boolean quantizeDither;
+    private String stitchMode = DEFAULT_STITCH_MODE;
+    private int maxImageHeight = DEFAULT_MAX_IMAGE_HEIGHT;
+    private String readiness = DEFAULT_READINESS;
+    private long readinessPollInterval = DEFAULT_READINESS_POLL_INTERVAL;
+    private long readinessQuietPeriod = DEFAULT_READINESS_QUIET_PERIOD;
+    private String frontier = DEFAULT_FRONTIER;
+    private int hostMaxConcurrency = DEFAULT_HOST_MAX_CONCURRENCY;
+    private long hostMinDelay = DEFAULT_HOST_MIN_DELAY;
+    private Map<String, HostSetting> hostSettings = Collections.emptyMap();
+    private String frontierPolicy = DEFAULT_FRONTIER_POLICY;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private String anchorExtraction = DEFAULT_ANCHOR_EXTRACTION;
+    private List<String> anchorTags = Collections.singletonList("a");
+    private CanonicalizationSetting canonicalization = new CanonicalizationSetting();
+    private String outputSink = DEFAULT_OUTPUT_SINK;
+    private long archiveSegmentSize = DEFAULT_ARCHIVE_SEGMENT_SIZE;
+    private boolean deduplicate;
+    private boolean preflight;
+    private int preflightTimeout = DEFAULT_PREFLIGHT_TIMEOUT;
+    private List<String> preflightContentTypes = Arrays.asList("text/html", "application/xhtml+xml");
+    private long driverRecyclePages = DEFAULT_DRIVER_RECYCLE_PAGES;
+    private long driverMemoryLimit = DEFAULT_DRIVER_MEMORY_LIMIT;
+    private int visitRetries = DEFAULT_VISIT_RETRIES;
+    private int tabs = DEFAULT_TABS;
+    private String warmUpUrl;
+    private String metricsFile;
+    private String metricsPrometheusFile;
+    private int metricsPort;
+    private long metricsInterval = DEFAULT_METRICS_INTERVAL;
+    private String linkGraph;
+    private List<String> viewports = Collections.emptyList();
+    private long viewportSleep = DEFAULT_VIEWPORT_SLEEP;
+    private volatile URLFilter accessFilter;
+    private volatile URLFilter extractionFilter;
 
     public TraverseSetting() {
     }
@@ -48,7 +124,11 @@ public class TraverseSetting {
 
     public static TraverseSetting load(Reader input) throws IOException {
         final Yaml yaml = new Yaml();
-        return yaml.loadAs(input, TraverseSetting.class);
+        final TraverseSetting setting = yaml.loadAs(input, TraverseSetting.class);
+        // fail on malformed rules at load time rather than on the first link
+        setting.getAccessFilter();
+        setting.getExtractionFilter();
+        return setting;
     }
 
     public String getBrowser() {
@@ -137,6 +217,7 @@ public class TraverseSetting {
 
     public void setAccessibleDomains(List<String> accessibleDomains) {
         this.accessibleDomains = accessibleDomains;
+        resetFilters();
     }
 
     public List<String> getExtractableDomains() {
@@ -145,6 +226,7 @@ public class TraverseSetting {
 
     public void setExtractableDomains(List<String> extractableDomains) {
         this.extractableDomains = extractableDomains;
+        resetFilters();
     }
 
     public List<String> getExcludePaths() {
@@ -153,21 +235,20 @@ public class TraverseSetting {
 
     public void setExcludePaths(List<String> excludePaths) {
         this.excludePaths = excludePaths;
+        resetFilters();
     }
 
-    public boolean containsExcludePaths(URL url) {
-        if (this.getExcludePaths().isEmpty()) {
-            return true;
-        }
+    public List<String> getIncludePaths() {
+        return this.includePaths;
+    }
 
-        boolean found = false;
-        for (String path : this.getExcludePaths()) {
-            if (url.getPath().startsWith(path)) {
-                found = true;
-                break;
-            }
-        }
-        return found;
+    public void setIncludePaths(List<String> includePaths) {
+        this.includePaths = includePaths;
+        resetFilters();
+    }
+
+    public boolean containsExcludePaths(URL url) {
+        return getAccessFilter().excludes(url.getPath());
     }
 
     public List<String> getAllowSuffixes() {
@@ -176,6 +257,7 @@ public class TraverseSetting {
 
     public void setAllowSuffixes(List<String> allowSuffixes) {
         this.allowSuffixes = allowSuffixes;
+        resetFilters();
     }
 
     public static String removeFragmentPart(String path) {
@@ -220,42 +302,44 @@ public class TraverseSetting {
     }
 
     public boolean containsAllowSuffixes(URL url) {
-        if (this.getAllowSuffixes().isEmpty()) {
-            return true;
-        }
-
-        final String suffix = extractSuffix(url);
-        return this.getAllowSuffixes().contains(suffix);
+        return getExtractionFilter().allowsSuffix(url.getPath());
     }
 
     public boolean allowsForAccess(URL url) {
-        if (!this.getAccessibleDomains().contains(url.getHost()) && !this.getAccessibleDomains().contains(url.getHost() + ":" + url.getPort())) {
-            return false;
-        }
-        if (containsExcludePaths(url)) {
+        return getAccessFilter().allows(url);
+    }
+
+    public boolean allowsForExtraction(URL url) {
+        final String reason = getExtractionFilter().reject(url);
+        if (reason != null) {
+            LOGGER.debug("{}: {}", reason, url);
             return false;
         }
 
         return true;
     }
 
-    public boolean allowsForExtraction(URL url) {
-        if (!this.getExtractableDomains().contains(url.getHost())) {
-            if (!this.getExtractableDomains().contains(url.getHost() + ":" + url.getPort())){
-                LOGGER.debug("not included in extractable domains: {}", url);
-                return false;
-            }
-        }
-        if (containsExcludePaths(url)) {
-            LOGGER.debug("excluded by paths: {}", url);
-            return false;
+    public URLFilter getAccessFilter() {
+        URLFilter filter = this.accessFilter;
+        if (filter == null) {
+            filter = new URLFilter(getAccessibleDomains(), getIncludePaths(), getExcludePaths(), Collections.<String>emptyList());
+            this.accessFilter = filter;
         }
-        if (!containsAllowSuffixes(url)) {
-            LOGGER.debug("excluded by suffixes: {}", url);
-            return false;
+        return filter;
+    }
+
+    public URLFilter getExtractionFilter() {
+        URLFilter filter = this.extractionFilter;
+        if (filter == null) {
+            filter = new URLFilter(getExtractableDomains(), getIncludePaths(), getExcludePaths(), getAllowSuffixes());
+            this.extractionFilter = filter;
         }
+        return filter;
+    }
 
-        return true;
+    private void resetFilters() {
+        this.accessFilter = null;
+        this.extractionFilter = null;
     }
 
     public String getPngQuant() {
@@ -265,4 +349,351 @@ public class TraverseSetting {
     public void setPngQuant(String pngQuant) {
         this.pngQuant = pngQuant;
     }
+
+    public String getJournalDirectory() {
+        return this.journalDirectory;
+    }
+
+    public void setJournalDirectory(String journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public long getJournalSnapshotInterval() {
+        return this.journalSnapshotInterval;
+    }
+
+    public void setJournalSnapshotInterval(long journalSnapshotInterval) {
+        this.journalSnapshotInterval = journalSnapshotInterval;
+    }
+
+    public String getVisitedSet() {
+        return this.visitedSet;
+    }
+
+    public void setVisitedSet(String visitedSet) {
+        this.visitedSet = visitedSet;
+    }
+
+    public long getVisitedSetExpectedSize() {
+        return this.visitedSetExpectedSize;
+    }
+
+    public void setVisitedSetExpectedSize(long visitedSetExpectedSize) {
+        this.visitedSetExpectedSize = visitedSetExpectedSize;
+    }
+
+    public boolean getVisitedSetBloomFilter() {
+        return this.visitedSetBloomFilter;
+    }
+
+    public void setVisitedSetBloomFilter(boolean visitedSetBloomFilter) {
+        this.visitedSetBloomFilter = visitedSetBloomFilter;
+    }
+
+    public int getCompressionThreads() {
+        return this.compressionThreads;
+    }
+
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
+    public int getCompressionQueueSize() {
+        return this.compressionQueueSize;
+    }
+
+    public void setCompressionQueueSize(int compressionQueueSize) {
+        this.compressionQueueSize = compressionQueueSize;
+    }
+
+    public int getCompressionBatchSize() {
+        return this.compressionBatchSize;
+    }
+
+    public void setCompressionBatchSize(int compressionBatchSize) {
+        this.compressionBatchSize = compressionBatchSize;
+    }
+
+    public String getPngCompressor() {
+        return this.pngCompressor;
+    }
+
+    public void setPngCompressor(String pngCompressor) {
+        this.pngCompressor = pngCompressor;
+    }
+
+    public int getQuantizeColors() {
+        return this.quantizeColors;
+    }
+
+    public void setQuantizeColors(int quantizeColors) {
+        this.quantizeColors = quantizeColors;
+    }
+
+    public boolean getQuantizeDither() {
+        return this.quantizeDither;
+    }
+
+    public void setQuantizeDither(boolean quantizeDither) {
+        this.quantizeDither = quantizeDither;
+    }
+
+    public String getStitchMode() {
+        return this.stitchMode;
+    }
+
+    public void setStitchMode(String stitchMode) {
+        this.stitchMode = stitchMode;
+    }
+
+    public int getMaxImageHeight() {
+        return this.maxImageHeight;
+    }
+
+    public void setMaxImageHeight(int maxImageHeight) {
+        this.maxImageHeight = maxImageHeight;
+    }
+
+    public String getReadiness() {
+        return this.readiness;
+    }
+
+    public void setReadiness(String readiness) {
+        this.readiness = readiness;
+    }
+
+    public long getReadinessPollInterval() {
+        return this.readinessPollInterval;
+    }
+
+    public void setReadinessPollInterval(long readinessPollInterval) {
+        this.readinessPollInterval = readinessPollInterval;
+    }
+
+    public long getReadinessQuietPeriod() {
+        return this.readinessQuietPeriod;
+    }
+
+    public void setReadinessQuietPeriod(long readinessQuietPeriod) {
+        this.readinessQuietPeriod = readinessQuietPeriod;
+    }
+
+    public String getFrontier() {
+        return this.frontier;
+    }
+
+    public void setFrontier(String frontier) {
+        this.frontier = frontier;
+    }
+
+    public int getHostMaxConcurrency() {
+        return this.hostMaxConcurrency;
+    }
+
+    public void setHostMaxConcurrency(int hostMaxConcurrency) {
+        this.hostMaxConcurrency = hostMaxConcurrency;
+    }
+
+    public long getHostMinDelay() {
+        return this.hostMinDelay;
+    }
+
+    public void setHostMinDelay(long hostMinDelay) {
+        this.hostMinDelay = hostMinDelay;
+    }
+
+    public Map<String, HostSetting> getHostSettings() {
+        return this.hostSettings;
+    }
+
+    public void setHostSettings(Map<String, HostSetting> hostSettings) {
+        this.hostSettings = hostSettings;
+    }
+
+    public String getFrontierPolicy() {
+        return this.frontierPolicy;
+    }
+
+    public void setFrontierPolicy(String frontierPolicy) {
+        this.frontierPolicy = frontierPolicy;
+    }
+
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public String getAnchorExtraction() {
+        return this.anchorExtraction;
+    }
+
+    public void setAnchorExtraction(String anchorExtraction) {
+        this.anchorExtraction = anchorExtraction;
+    }
+
+    public List<String> getAnchorTags() {
+        return this.anchorTags;
+    }
+
+    public void setAnchorTags(List<String> anchorTags) {
+        this.anchorTags = anchorTags;
+    }
+
+    public CanonicalizationSetting getCanonicalization() {
+        return this.canonicalization;
+    }
+
+    public void setCanonicalization(CanonicalizationSetting canonicalization) {
+        this.canonicalization = canonicalization;
+    }
+
+    public String getOutputSink() {
+        return this.outputSink;
+    }
+
+    public void setOutputSink(String outputSink) {
+        this.outputSink = outputSink;
+    }
+
+    public long getArchiveSegmentSize() {
+        return this.archiveSegmentSize;
+    }
+
+    public void setArchiveSegmentSize(long archiveSegmentSize) {
+        this.archiveSegmentSize = archiveSegmentSize;
+    }
+
+    public boolean getDeduplicate() {
+        return this.deduplicate;
+    }
+
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean getPreflight() {
+        return this.preflight;
+    }
+
+    public void setPreflight(boolean preflight) {
+        this.preflight = preflight;
+    }
+
+    public int getPreflightTimeout() {
+        return this.preflightTimeout;
+    }
+
+    public void setPreflightTimeout(int preflightTimeout) {
+        this.preflightTimeout = preflightTimeout;
+    }
+
+    public List<String> getPreflightContentTypes() {
+        return this.preflightContentTypes;
+    }
+
+    public void setPreflightContentTypes(List<String> preflightContentTypes) {
+        this.preflightContentTypes = preflightContentTypes;
+    }
+
+    public long getDriverRecyclePages() {
+        return this.driverRecyclePages;
+    }
+
+    public void setDriverRecyclePages(long driverRecyclePages) {
+        this.driverRecyclePages = driverRecyclePages;
+    }
+
+    /**
+     * @return average resident memory per browser in MiB above which a browser is restarted, 0 for no limit
+     */
+    public long getDriverMemoryLimit() {
+        return this.driverMemoryLimit;
+    }
+
+    public void setDriverMemoryLimit(long driverMemoryLimit) {
+        this.driverMemoryLimit = driverMemoryLimit;
+    }
+
+    public int getVisitRetries() {
+        return this.visitRetries;
+    }
+
+    public void setVisitRetries(int visitRetries) {
+        this.visitRetries = visitRetries;
+    }
+
+    public int getTabs() {
+        return this.tabs;
+    }
+
+    public void setTabs(int tabs) {
+        this.tabs = tabs;
+    }
+
+    public String getWarmUpUrl() {
+        return this.warmUpUrl;
+    }
+
+    public void setWarmUpUrl(String warmUpUrl) {
+        this.warmUpUrl = warmUpUrl;
+    }
+
+    public String getMetricsFile() {
+        return this.metricsFile;
+    }
+
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public String getMetricsPrometheusFile() {
+        return this.metricsPrometheusFile;
+    }
+
+    public void setMetricsPrometheusFile(String metricsPrometheusFile) {
+        this.metricsPrometheusFile = metricsPrometheusFile;
+    }
+
+    public int getMetricsPort() {
+        return this.metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public long getMetricsInterval() {
+        return this.metricsInterval;
+    }
+
+    public void setMetricsInterval(long metricsInterval) {
+        this.metricsInterval = metricsInterval;
+    }
+
+    public String getLinkGraph() {
+        return this.linkGraph;
+    }
+
+    public void setLinkGraph(String linkGraph) {
+        this.linkGraph = linkGraph;
+    }
+
+    public List<String> getViewports() {
+        return this.viewports;
+    }
+
+    public void setViewports(List<String> viewports) {
+        this.viewports = viewports;
+    }
+
+    public long getViewportSleep() {
+        return this.viewportSleep;
+    }
+
+    public void setViewportSleep(long viewportSleep) {
+        this.viewportSleep = viewportSleep;
+    }
 }
@@ -1,29 +1,63 @@
 package org.ssproj;
 
-import org.apache.commons.io.FileUtils;
 import org.openqa.selenium.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.regex.Pattern;
 
 public abstract class Traverser implements Closeable {
     public final static Logger LOGGER = LoggerFactory.getLogger(Traverser.class);
     private final static Marker LINK = MarkerFactory.getMarker("link");
+    private static final long RESTART_DELAY = 1000;
     private TraverserContext context;
     private WebDriver driver;
     private final AtomicLong counter = new AtomicLong();
+    private long pages;
+    private Viewport viewport;
+    private List<String> tabs = Collections.emptyList();
+
+    private static class Visit {
+        private final URL url;
+        private final URL target;
+        private final int depth;
+        private final long started;
+        private String tab;
+        private long loaded;
+        private boolean failed;
+
+        Visit(URL url, URL target, int depth, long started) {
+            this.url = url;
+            this.target = target;
+            this.depth = depth;
+            this.started = started;
+        }
+    }
+
+    static {
+        // otherwise ImageIO spools every stream it reads through a temporary file
+        ImageIO.setUseCache(false);
+    }
 
     public Traverser(TraverserContext context) {
         this.context = context;
@@ -45,6 +79,11 @@ public abstract class Traverser implements Closeable {
         }
 
         this.driver = startDriver();
+        // a cold browser takes longer for its first page, after a restart as well
+        this.counter.set(0);
+        this.pages = 0;
+        this.viewport = null;
+        getContext().driverStarted();
 
         WebDriver.Window window = this.driver.manage().window();
         org.openqa.selenium.Dimension size = window.getSize();
@@ -61,53 +100,432 @@ public abstract class Traverser implements Closeable {
         if (size.getWidth() != width || size.getHeight() != height) {
             window.setSize(new org.openqa.selenium.Dimension(width, height));
         }
+
+        this.tabs = openTabs(getContext().getSetting().getTabs());
+    }
+
+    /**
+     * @return the handles of {@code count} tabs, the current one first
+     */
+    private List<String> openTabs(int count) {
+        final List<String> handles = new ArrayList<>();
+        handles.add(this.driver.getWindowHandle());
+        if (count <= 1) {
+            return handles;
+        }
+
+        for (int i = 1; i < count; i++) {
+            ((JavascriptExecutor) this.driver).executeScript("window.open('about:blank', '_blank')");
+        }
+        for (String handle : this.driver.getWindowHandles()) {
+            if (!handles.contains(handle)) {
+                handles.add(handle);
+            }
+        }
+        if (handles.size() < count) {
+            LOGGER.warn("opened {} of {} tabs", handles.size(), count);
+        }
+        this.driver.switchTo().window(handles.get(0));
+        return handles.size() > count ? handles.subList(0, count) : handles;
+    }
+
+    /**
+     * Starts the browser ahead of the first visit and loads the {@code warmUpUrl} if there is
+     * one, which then takes the initial sleep instead of the first page.
+     */
+    public void warmUp() throws InterruptedException {
+        try {
+            initDriver();
+        } catch (RuntimeException e) {
+            closeDriver();
+            throw e;
+        }
+
+        final String url = getContext().getSetting().getWarmUpUrl();
+        if (url == null || url.isEmpty()) {
+            return;
+        }
+
+        LOGGER.info("warm up: {}", url);
+        this.driver.get(url);
+        Thread.sleep(nextSleep());
     }
 
     public void visit(URL url) throws InterruptedException {
+        final Visit visit = begin(url);
+        if (visit == null) {
+            return;
+        }
+
+        try {
+            LOGGER.info("visit: {}", visit.target);
+            navigate(visit);
+            capture(visit, nextSleep());
+        } catch (WebDriverException e) {
+            if (fail(visit, e)) {
+                return;
+            }
+        }
+
+        finish(visit);
+        recycleDriver();
+    }
+
+    /**
+     * Visits the urls in tabs of one browser: every page is loaded in its own tab first, and the
+     * tabs are captured one after another afterwards, so the pages settle while the others load.
+     * The sleep of a page counts from the moment it was loaded. Without several tabs (the
+     * {@code tabs} setting) the urls are visited one by one.
+     */
+    public void visit(List<URL> urls) throws InterruptedException {
+        if (urls.size() == 1 || getContext().getSetting().getTabs() <= 1) {
+            for (URL url : urls) {
+                visit(url);
+            }
+            return;
+        }
+
+        final List<Visit> visits = new ArrayList<>(urls.size());
+        for (URL url : urls) {
+            final Visit visit = begin(url);
+            if (visit != null) {
+                visits.add(visit);
+            }
+        }
+
+        int index = 0;
+        while (index < visits.size()) {
+            if (this.driver == null) {
+                // lost before this visit was loaded, which does not count as a retry
+                release(visits.get(index++));
+                continue;
+            }
+
+            final List<Visit> loaded = new ArrayList<>(this.tabs.size());
+            for (String tab : this.tabs) {
+                if (index >= visits.size()) {
+                    break;
+                }
+                final Visit visit = visits.get(index++);
+                try {
+                    this.driver.switchTo().window(tab);
+                    LOGGER.info("visit: {}", visit.target);
+                    navigate(visit);
+                    visit.tab = tab;
+                    visit.loaded = System.currentTimeMillis();
+                    loaded.add(visit);
+                } catch (WebDriverException e) {
+                    if (!fail(visit, e)) {
+                        finish(visit);
+                    }
+                    if (this.driver == null) {
+                        break;
+                    }
+                }
+            }
+
+            // one tab at a time: captures scroll and resize the current window
+            for (Visit visit : loaded) {
+                if (this.driver == null) {
+                    visit.failed = true;
+                    if (!requeue(visit)) {
+                        finish(visit);
+                    }
+                    continue;
+                }
+                try {
+                    this.driver.switchTo().window(visit.tab);
+                    capture(visit, Math.max(0, visit.loaded + nextSleep() - System.currentTimeMillis()));
+                } catch (WebDriverException e) {
+                    if (fail(visit, e)) {
+                        continue;
+                    }
+                }
+                finish(visit);
+            }
+        }
+
+        recycleDriver();
+    }
+
+    /**
+     * Starts the browser if necessary and marks the url as visited.
+     *
+     * @return the visit, or null if the url is not to be loaded
+     */
+    private Visit begin(URL url) throws InterruptedException {
+        final long started = getContext().getMetrics().start();
+        final int depth = getContext().getQueue().depth(url);
         if (this.driver == null) {
-            initDriver();
+            try {
+                initDriver();
+            } catch (WebDriverException e) {
+                LOGGER.error("failed to start browser", e);
+                closeDriver();
+                // not checked yet, so only the frontier gets the url back
+                if (!getContext().postpone(url, depth)) {
+                    LOGGER.warn("{}: given up, browser could not be started", url);
+                    graph(url, LinkGraphWriter.FAILED);
+                }
+                Thread.sleep(RESTART_DELAY);
+                return null;
+            }
         }
 
         if (!getContext().addCheck(url)) {
             LOGGER.debug("{}: already visited", url);
-            return;
+            return null;
+        }
+
+        final URL target = preflight(url);
+        if (target == null) {
+            getContext().completeCheck(url);
+            return null;
         }
 
         long totalCount = getContext().incrementTotalCounter();
         if (exceedsScreenShotLimit(totalCount)) {
-            return;
+            getContext().abandonCheck(url);
+            if (target != url) {
+                getContext().abandonCheck(target);
+            }
+            return null;
         }
         if ((totalCount % 10) == 0) {
             reportStats();
         }
 
-        LOGGER.info("visit: {}", url);
-        try {
-            this.driver.get(url.toString());
-        } catch (org.openqa.selenium.WebDriverException e) {
-            final String failureMessage = String.format("error occurs while visiting %s", url);
+        // links found on a redirect target are one level below the url that was queued
+        return new Visit(url, target, depth, started);
+    }
+
+    private void navigate(Visit visit) {
+        final Metrics metrics = getContext().getMetrics();
+        final long start = metrics.start();
+        this.driver.get(visit.target.toString());
+        metrics.record(Metrics.Stage.NAVIGATE, start);
+    }
+
+    /**
+     * @return true if the url has been put back into the queue because the browser was lost
+     */
+    private boolean fail(Visit visit, WebDriverException e) throws InterruptedException {
+        visit.failed = true;
+        if (isAlive()) {
+            final String failureMessage = String.format("error occurs while visiting %s", visit.target);
             LOGGER.warn(failureMessage, e);
+            return false;
+        }
+
+        LOGGER.warn(String.format("browser lost while visiting %s, restarting it", visit.target), e);
+        closeDriver();
+        return requeue(visit);
+    }
+
+    private boolean requeue(Visit visit) throws InterruptedException {
+        if (getContext().retry(visit.target, visit.depth)) {
+            if (visit.target != visit.url) {
+                getContext().completeCheck(visit.url);
+            }
+            return true;
+        }
+
+        LOGGER.warn("{}: given up after {} retries", visit.target, getContext().getSetting().getVisitRetries());
+        return false;
+    }
+
+    private void release(Visit visit) throws InterruptedException {
+        getContext().release(visit.target, visit.depth);
+        if (visit.target != visit.url) {
+            getContext().completeCheck(visit.url);
+        }
+    }
+
+    private void finish(Visit visit) throws InterruptedException {
+        getContext().completeCheck(visit.url);
+        if (visit.target != visit.url) {
+            getContext().completeCheck(visit.target);
+        }
+        this.pages++;
+
+        final Metrics metrics = getContext().getMetrics();
+        metrics.record(Metrics.Stage.VISIT, visit.started);
+        metrics.visited(visit.target, visit.failed);
+        graph(visit.target, visit.failed ? LinkGraphWriter.FAILED : LinkGraphWriter.VISITED);
+    }
+
+    private void graph(URL url, int status) throws InterruptedException {
+        final LinkGraphWriter graph = getContext().getLinkGraph();
+        if (graph != null) {
+            graph.status(url, status);
+        }
+    }
+
+    /**
+     * @return false if the browser has crashed or its session is gone
+     */
+    protected boolean isAlive() {
+        if (this.driver == null) {
+            return false;
+        }
+
+        try {
+            this.driver.getWindowHandle();
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Restarts the browser (on the next visit) once it has loaded the configured number of
+     * pages or the browsers use more memory than allowed, since long running browsers leak.
+     */
+    private void recycleDriver() {
+        if (this.driver == null) {
+            return;
+        }
+
+        final long recyclePages = getContext().getSetting().getDriverRecyclePages();
+        if (recyclePages > 0 && this.pages >= recyclePages) {
+            LOGGER.info("restarting browser after {} pages", this.pages);
+            closeDriver();
             return;
         }
 
-        final long sleep;
+        final BrowserMemory memory = getContext().getBrowserMemory();
+        if (memory != null && memory.exceeds(getContext().getDrivers())) {
+            LOGGER.info("restarting browser after {} pages, memory limit exceeded", this.pages);
+            closeDriver();
+        }
+    }
+
+    /**
+     * @return the url to load in the browser: {@code url}, or the final url it redirects to if
+     *     that has not been visited yet; null if the page is to be skipped
+     */
+    private URL preflight(URL url) throws InterruptedException {
+        final PreflightChecker preflight = getContext().getPreflight();
+        if (preflight == null) {
+            return url;
+        }
+
+        final Metrics metrics = getContext().getMetrics();
+        final long start = metrics.start();
+        final URL checked = preflight.check(url);
+        metrics.record(Metrics.Stage.PREFLIGHT, start);
+        if (checked == null) {
+            graph(url, LinkGraphWriter.SKIPPED);
+            return null;
+        }
+        if (checked == url) {
+            return url;
+        }
+
+        final URLCanonicalizer canonicalizer = getContext().getCanonicalizer();
+        final URL redirect = canonicalizer.apply(checked);
+        if (redirect.toString().equals(canonicalizer.apply(url).toString())) {
+            return url;
+        }
+
+        // the redirect is an edge of the graph, whether or not its target gets visited here
+        final LinkGraphWriter graph = getContext().getLinkGraph();
+        if (graph != null) {
+            graph.status(url, LinkGraphWriter.REDIRECTED);
+            graph.links(url, Collections.singletonList(redirect));
+        }
+        if (!getContext().allowsForAccess(redirect)) {
+            LOGGER.debug("{}: redirects to {}, not allowed for access", url, redirect);
+            return null;
+        }
+        if (!getContext().addCheck(redirect)) {
+            LOGGER.debug("{}: redirects to {}, already visited", url, redirect);
+            return null;
+        }
+        return redirect;
+    }
+
+    private long nextSleep() {
         if (this.counter.incrementAndGet() == 1) {
-            sleep = this.context.getInitialSleep();
+            return this.context.getInitialSleep();
         } else {
-            sleep = this.context.getSleep();
+            return this.context.getSleep();
         }
+    }
 
-        Thread.sleep(sleep);
-
-        try {
-            saveScreenShot();
-        } catch (IOException e) {
-            LOGGER.error("save error", e);
+    /**
+     * Waits up to {@code sleep} ms for the loaded page to settle, then reads its links and takes
+     * the screen shot, once per viewport if {@code viewports} are set.
+     */
+    private void capture(Visit visit, long sleep) throws InterruptedException {
+        final Metrics metrics = getContext().getMetrics();
+        long start = metrics.start();
+        final PageReadiness readiness = getContext().getReadiness();
+        if (readiness != null) {
+            readiness.await(this.driver, visit.target, sleep);
+        } else {
+            Thread.sleep(sleep);
+        }
+        metrics.record(Metrics.Stage.SETTLE, start);
+
+        // links are read before the screen shot: scrolling for a full-page capture can
+        // re-render parts of the page and leave stale elements behind
+        start = metrics.start();
+        final List<URL> links = canTraverse() ? extractLinks(visit.depth) : Collections.<URL>emptyList();
+        metrics.record(Metrics.Stage.EXTRACT, start);
+
+        final List<Viewport> viewports = getContext().getViewports();
+        if (viewports.isEmpty()) {
+            start = metrics.start();
+            try {
+                saveScreenShot();
+            } catch (IOException e) {
+                LOGGER.error("save error", e);
+            }
+            metrics.record(Metrics.Stage.CAPTURE, start);
+        } else {
+            captureViewports(visit, viewports);
         }
 
         // traverse
-        if (canTraverse()) {
-            traverse();
+        traverse(visit.target, links, visit.depth + 1);
+    }
+
+    /**
+     * Resizes the window to each viewport in turn and captures the page again, without loading
+     * it again. The first capture is at the size the window already has, usually the last
+     * viewport of the previous page, which saves a resize and its wait per page.
+     */
+    private void captureViewports(Visit visit, List<Viewport> viewports) throws InterruptedException {
+        final Metrics metrics = getContext().getMetrics();
+        final int first = Math.max(0, viewports.indexOf(this.viewport));
+        for (int i = 0; i < viewports.size(); i++) {
+            final Viewport viewport = viewports.get((first + i) % viewports.size());
+            long start = metrics.start();
+            if (!viewport.equals(this.viewport)) {
+                this.driver.manage().window().setSize(new org.openqa.selenium.Dimension(viewport.getWidth(), viewport.getHeight()));
+                this.viewport = viewport;
+                final long sleep = getContext().getSetting().getViewportSleep();
+                final PageReadiness readiness = getContext().getReadiness();
+                if (readiness != null) {
+                    readiness.awaitSettled(this.driver, visit.target, sleep);
+                } else {
+                    Thread.sleep(sleep);
+                }
+            }
+            if (i > 0) {
+                // full-page captures leave the page scrolled down
+                ((JavascriptExecutor) this.driver).executeScript("window.scrollTo(0, 0)");
+            }
+            metrics.record(Metrics.Stage.SETTLE, start);
+
+            start = metrics.start();
+            try {
+                saveScreenShot();
+            } catch (IOException e) {
+                LOGGER.error("save error at " + viewport, e);
+            }
+            metrics.record(Metrics.Stage.CAPTURE, start);
         }
     }
 
@@ -137,6 +555,19 @@ public abstract class Traverser implements Closeable {
         log.append(this.context.getQueue().size());
         log.append(" urls remaining");
 
+        log.append("; ");
+
+        final VisitedSet visited = this.context.getCheck();
+        log.append(visited.size());
+        log.append(" urls visited (");
+        log.append(visited.memoryUsage() / 1024);
+        log.append(" KiB)");
+
+        log.append("; ");
+
+        log.append(this.context.getCanonicalizer().getAvoidedLoads());
+        log.append(" loads avoided by canonicalization");
+
         LOGGER.info(log.toString());
     }
 
@@ -150,11 +581,44 @@ public abstract class Traverser implements Closeable {
     }
 
     protected void saveScreenShot() throws IOException, InterruptedException {
-        File file = ((TakesScreenshot) this.driver).getScreenshotAs(OutputType.FILE);
+        final byte[] png = takeScreenShot();
         File outputFile = getOutputFile();
-        FileUtils.copyFile(file, outputFile);
-        compressPng(outputFile);
-        LOGGER.debug("saved screen shot: {}", outputFile);
+        if (getContext().getQuantizer() != null) {
+            postProcess(outputFile, f -> writeImage(readImage(png), f));
+        } else {
+            postProcess(outputFile, f -> writeBytes(png, f));
+        }
+    }
+
+    /**
+     * Takes the screen shot as png bytes. Unlike {@code OutputType.FILE} this leaves no temporary
+     * file behind.
+     */
+    protected byte[] takeScreenShot() {
+        return ((TakesScreenshot) this.driver).getScreenshotAs(OutputType.BYTES);
+    }
+
+    protected BufferedImage takeScreenShotImage() throws IOException {
+        return readImage(takeScreenShot());
+    }
+
+    protected static BufferedImage readImage(byte[] png) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(png));
+    }
+
+    /**
+     * Replaces {@code file} with {@code bytes}. A capture left by an earlier crawl may be a hard
+     * link shared with other captures, so it is deleted rather than written into.
+     */
+    protected static void writeBytes(byte[] bytes, File file) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
     }
 
     protected File getOutputFile() {
@@ -166,59 +630,135 @@ public abstract class Traverser implements Closeable {
             return null;
         }
 
-        String host = url.getHost();
-        int port = url.getPort();
-        String hostDirectory = port == -1 ? host : host + "_" + port;
+        try {
+            // null unless viewports are configured
+            return this.context.getOutputSink().getFile(url, this.viewport != null ? this.viewport.getSuffix() : "");
+        } catch (IOException e) {
+            LOGGER.error("failed to open output sink", e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands the output file over to the post processor, which saves it with {@code saver} and
+     * compresses it. Without a post processor both happen on the calling thread.
+     */
+    protected void postProcess(File outputFile, PNGPostProcessor.Saver saver) throws IOException, InterruptedException {
+        final PNGPostProcessor postProcessor = getContext().getPostProcessor();
+        if (postProcessor != null) {
+            postProcessor.submit(outputFile, saver);
+            return;
+        }
 
-        String outputFileName = url.getPath();
-        if (outputFileName.endsWith("/")) {
-            outputFileName = outputFileName + "index.html";
+        final Metrics metrics = getContext().getMetrics();
+        if (saver != null) {
+            final long start = metrics.start();
+            saver.save(outputFile);
+            metrics.record(Metrics.Stage.WRITE, start);
         }
-        outputFileName = outputFileName + ".png";
 
-        Pattern regex = Pattern.compile("/\\.");
-        outputFileName = regex.matcher(outputFileName).replaceAll("/_");
+        final ContentDeduplicator deduplicator = getContext().getDeduplicator();
+        if (deduplicator != null && outputFile.exists() && !deduplicator.offer(outputFile)) {
+            return;
+        }
 
-        File outputFile = new File(new File(this.context.getOutputDirectory(), hostDirectory), outputFileName);
-        File outputDirectory = outputFile.getParentFile();
-        if (!outputDirectory.exists()) {
-            outputDirectory.mkdirs();
+        compressPng(outputFile);
+        final long start = metrics.start();
+        final String reference = getContext().getOutputSink().commit(outputFile);
+        metrics.record(Metrics.Stage.COMMIT, start);
+        if (deduplicator != null) {
+            deduplicator.committed(outputFile, reference);
         }
+        LOGGER.debug("saved screen shot: {}", outputFile);
+    }
 
-        return outputFile;
+    /**
+     * Replaces the file with the image as a png, reduced to a palette when the in-process
+     * quantizer is enabled.
+     */
+    protected void writeImage(BufferedImage image, File file) throws IOException {
+        final PaletteQuantizer quantizer = getContext().getQuantizer();
+        Files.deleteIfExists(file.toPath());
+        ImageIO.write(quantizer != null ? quantizer.apply(image) : image, "png", file);
     }
 
     protected void compressPng(File file) throws InterruptedException {
         if (! file.exists()) {
             return;
         }
+        if (getContext().getQuantizer() != null) {
+            // already quantized by writeImage
+            return;
+        }
 
         final String command = this.getContext().getPngQuant();
         if (command == null || command.isEmpty()) {
             return;
         }
 
-        final PNGCompressor compressor = new PNGCompressor(command);
+        final PNGCompressor compressor = new PNGCompressor(command, getContext().getMetrics());
         compressor.apply(file);
     }
 
-    private void traverse() throws InterruptedException {
-        final AnchorExtractor extractor = new AnchorExtractor(this.driver);
+    private List<URL> extractLinks(int depth) throws InterruptedException {
+        if (!getContext().getQueue().accepts(depth + 1)) {
+            LOGGER.debug("{}: depth limit reached", this.driver.getCurrentUrl());
+            return Collections.emptyList();
+        }
+
+        final TraverseSetting setting = getContext().getSetting();
+        final AnchorExtractor extractor = new AnchorExtractor(this.driver, setting.getAnchorExtraction(), setting.getAnchorTags());
+        final URLCanonicalizer canonicalizer = getContext().getCanonicalizer();
         final Href2URI href2uri;
         try {
-            href2uri = new Href2URI(this.driver);
+            href2uri = new Href2URI(this.driver, canonicalizer);
         } catch (URISyntaxException e) {
             LOGGER.error("uri syntax exception", e);
-            return;
+            return Collections.emptyList();
         }
 
+        final List<URL> links = new ArrayList<>();
+        Set<String> hrefs = new HashSet<>();
         Set<String> dups = new HashSet<>();
-        for (URL url: href2uri.apply(extractor.apply())) {
+        for (String href : extractor.apply()) {
+            final URL resolved = href2uri.resolve(href);
+            if (resolved == null || !hrefs.add(resolved.toString())) {
+                continue;
+            }
+
+            // dedupe on the canonical form
+            final URL url = canonicalizer.apply(resolved);
             if (!dups.add(url.toString())) {
                 continue;
             }
+            // still a link of the page; traverse() does not queue it again
+            if (url != resolved && getContext().containsCheck(url)) {
+                LOGGER.debug("{}: already visited as {}", resolved, url);
+                canonicalizer.avoided(resolved);
+            }
 
             LOGGER.debug(LINK, "{}\t{}", href2uri.getBaseURI(), url);
+            links.add(url);
+        }
+
+        return links;
+    }
+
+    /**
+     * Queues the links found on {@code source} and records them in the link graph, including
+     * the ones that are not queued because they have been visited or are not allowed.
+     */
+    private void traverse(URL source, List<URL> links, int depth) throws InterruptedException {
+        if (links.isEmpty()) {
+            return;
+        }
+
+        final LinkGraphWriter graph = getContext().getLinkGraph();
+        if (graph != null) {
+            graph.links(source, links);
+        }
+
+        for (URL url: links) {
             if (getContext().containsCheck(url)) {
                 LOGGER.debug("{}: already visited", url);
                 continue;
@@ -228,15 +768,31 @@ public abstract class Traverser implements Closeable {
                 continue;
             }
 
-            this.getContext().getQueue().put(url);
+            this.getContext().enqueue(url, depth);
         }
     }
 
-    @Override
-    public void close() {
-        if (this.driver != null) {
-            this.driver.close();
+    /**
+     * Quits the browser, which may have crashed already.
+     */
+    protected void closeDriver() {
+        if (this.driver == null) {
+            return;
+        }
+
+        try {
+            this.driver.quit();
+        } catch (WebDriverException e) {
+            LOGGER.debug("failed to quit browser", e);
+        } finally {
             this.driver = null;
+            this.tabs = Collections.emptyList();
+            getContext().driverClosed();
         }
     }
+
+    @Override
+    public void close() {
+        closeDriver();
+    }
 }
@@ -1,30 +1,50 @@
 package org.ssproj;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class TraverserContext {
     private final TraverseSetting setting;
-    private final BlockingQueue<URL> queue = new LinkedBlockingQueue<>();
+    private final Frontier queue;
     private final AtomicBoolean done = new AtomicBoolean();
-    private final Set<String> check = Collections.synchronizedSet(new HashSet<>());
+    private final VisitedSet check;
+    private final URLCanonicalizer canonicalizer;
     private final AtomicLong totalCounter = new AtomicLong();
+    private final AtomicInteger drivers = new AtomicInteger();
+    private final AtomicLong warmUpTime = new AtomicLong();
+    private final Map<String, Integer> retries = new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics();
+    private CrawlJournal journal;
+    private volatile PNGPostProcessor postProcessor;
+    private OutputSink outputSink;
+    private ContentDeduplicator deduplicator;
+    private PaletteQuantizer quantizer;
+    private PageReadiness readiness;
+    private PreflightChecker preflight;
+    private BrowserMemory browserMemory;
+    private MetricsExporter metricsExporter;
+    private LinkGraphWriter linkGraph;
+    private List<Viewport> viewports;
 
     public TraverserContext() {
-        this.setting = new TraverseSetting();
+        this(new TraverseSetting());
     }
 
     private TraverserContext(TraverseSetting setting) {
         this.setting = setting;
+        this.check = VisitedSetFactory.create(setting);
+        this.queue = FrontierFactory.create(setting);
+        this.canonicalizer = new URLCanonicalizer(setting.getCanonicalization());
     }
 
     public static TraverserContext load(String fileName) throws IOException {
@@ -118,7 +138,7 @@ public class TraverserContext {
         return getRecursively();
     }
 
-    public BlockingQueue<URL> getQueue() {
+    public Frontier getQueue() {
         return this.queue;
     }
 
@@ -126,14 +146,313 @@ public class TraverserContext {
         return totalCounter;
     }
 
+    public URLCanonicalizer getCanonicalizer() {
+        return this.canonicalizer;
+    }
+
     public boolean addCheck(URL url) {
-        return addCheck(url.toString());
+        final URL canonical = this.canonicalizer.apply(url);
+        final boolean added;
+        if (this.journal == null) {
+            added = addCheck(canonical.toString());
+        } else {
+            this.journal.started(canonical);
+            added = addCheck(canonical.toString());
+            if (!added) {
+                this.journal.abandoned(canonical);
+            }
+        }
+        return added;
     }
 
     public boolean addCheck(String url) {
         return this.check.add(url);
     }
 
+    public VisitedSet getCheck() {
+        return this.check;
+    }
+
+    public void completeCheck(URL url) {
+        final URL canonical = this.canonicalizer.apply(url);
+        // a url that needed retries is done with them
+        this.retries.remove(canonical.toString());
+        if (this.journal != null) {
+            this.journal.visited(canonical);
+        }
+    }
+
+    /**
+     * Ends the visit of a checked url that is not going to be loaded after all. It stays in the
+     * visited set, but is no longer in flight in the journal, so a resume does not load it.
+     */
+    public void abandonCheck(URL url) {
+        if (this.journal != null) {
+            this.journal.abandoned(this.canonicalizer.apply(url));
+        }
+    }
+
+    /**
+     * Puts a url back into the queue after its visit failed because of the browser rather than
+     * the page.
+     *
+     * @return false if the url has been retried too often and should be given up
+     */
+    public boolean retry(URL url, int depth) throws InterruptedException {
+        final URL canonical = this.canonicalizer.apply(url);
+        final String key = canonical.toString();
+        if (!countRetry(key)) {
+            return false;
+        }
+
+        this.check.remove(key);
+        if (this.journal != null) {
+            this.journal.abandoned(canonical);
+        }
+        enqueue(canonical, depth);
+        return true;
+    }
+
+    /**
+     * Puts a url back into the queue that has been taken from it but not checked yet, because
+     * the browser could not be started. The visited set is left alone: another worker may have
+     * checked the url in the meantime.
+     *
+     * @return false if the url has been retried too often and should be given up
+     */
+    public boolean postpone(URL url, int depth) throws InterruptedException {
+        final URL canonical = this.canonicalizer.apply(url);
+        if (!countRetry(canonical.toString())) {
+            return false;
+        }
+
+        enqueue(canonical, depth);
+        return true;
+    }
+
+    /**
+     * Unchecks a url this worker has checked but not loaded and puts it back into the queue,
+     * without counting a retry.
+     */
+    public void release(URL url, int depth) throws InterruptedException {
+        final URL canonical = this.canonicalizer.apply(url);
+        this.check.remove(canonical.toString());
+        if (this.journal != null) {
+            this.journal.abandoned(canonical);
+        }
+        enqueue(canonical, depth);
+    }
+
+    private boolean countRetry(String key) {
+        if (this.retries.merge(key, 1, Integer::sum) > getSetting().getVisitRetries()) {
+            this.retries.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+    public void enqueue(URL url) throws InterruptedException {
+        enqueue(url, 0);
+    }
+
+    public void enqueue(URL url, int depth) throws InterruptedException {
+        url = this.canonicalizer.apply(url);
+        // queued first: a snapshot in between sees the url in the frontier, while a journal
+        // record written first could go with the segment the snapshot deletes
+        this.queue.put(url, depth);
+        if (this.journal != null) {
+            this.journal.enqueued(url, depth);
+        }
+    }
+
+    public String getJournalDirectory() {
+        return getSetting().getJournalDirectory();
+    }
+
+    public void setJournalDirectory(String journalDirectory) {
+        getSetting().setJournalDirectory(journalDirectory);
+    }
+
+    public CrawlJournal getJournal() {
+        return this.journal;
+    }
+
+    public long openJournal(boolean resume) throws IOException, InterruptedException {
+        final CrawlJournal journal = new CrawlJournal(new File(getJournalDirectory()), this, getSetting().getJournalSnapshotInterval());
+        final long restored = journal.open(resume);
+        this.journal = journal;
+        return restored;
+    }
+
+    public void closeJournal() throws IOException {
+        if (this.journal != null) {
+            this.journal.close();
+            this.journal = null;
+        }
+    }
+
+    public PNGPostProcessor getPostProcessor() {
+        return this.postProcessor;
+    }
+
+    /**
+     * @return the in-process quantizer when {@code pngCompressor} is "java", otherwise null
+     */
+    public synchronized PaletteQuantizer getQuantizer() {
+        if (this.quantizer == null && "java".equalsIgnoreCase(getSetting().getPngCompressor())) {
+            this.quantizer = new PaletteQuantizer(getSetting().getQuantizeColors(), getSetting().getQuantizeDither());
+        }
+        return this.quantizer;
+    }
+
+    /**
+     * @return the shared readiness detector when {@code readiness} is "adaptive", otherwise null
+     */
+    public synchronized PageReadiness getReadiness() {
+        if (this.readiness == null && "adaptive".equalsIgnoreCase(getSetting().getReadiness())) {
+            this.readiness = new PageReadiness(getSetting().getReadinessPollInterval(), getSetting().getReadinessQuietPeriod());
+        }
+        return this.readiness;
+    }
+
+    /**
+     * @return the window sizes every page is captured at, or an empty list to capture each page
+     *     once at the configured width and height
+     */
+    public synchronized List<Viewport> getViewports() {
+        if (this.viewports == null) {
+            final List<Viewport> viewports = new ArrayList<>();
+            for (String viewport : getSetting().getViewports()) {
+                viewports.add(Viewport.parse(viewport));
+            }
+            this.viewports = Collections.unmodifiableList(viewports);
+        }
+        return this.viewports;
+    }
+
+    public synchronized BrowserMemory getBrowserMemory() {
+        if (this.browserMemory == null && getSetting().getDriverMemoryLimit() > 0) {
+            this.browserMemory = new BrowserMemory(getSetting().getDriverMemoryLimit() * 1024 * 1024);
+        }
+        return this.browserMemory;
+    }
+
+    public void driverStarted() {
+        this.drivers.incrementAndGet();
+    }
+
+    public void driverClosed() {
+        this.drivers.decrementAndGet();
+    }
+
+    /**
+     * @return the number of browsers currently running
+     */
+    public int getDrivers() {
+        return this.drivers.get();
+    }
+
+    public Metrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Starts exporting the metrics if {@code metricsFile}, {@code metricsPrometheusFile} or
+     * {@code metricsPort} is set.
+     */
+    public synchronized void openMetricsExporter() throws IOException {
+        final TraverseSetting setting = getSetting();
+        if (setting.getMetricsFile() == null && setting.getMetricsPrometheusFile() == null && setting.getMetricsPort() <= 0) {
+            return;
+        }
+        this.metricsExporter = new MetricsExporter(this.metrics, setting.getMetricsFile(), setting.getMetricsPrometheusFile(),
+                setting.getMetricsPort(), setting.getMetricsInterval());
+    }
+
+    public synchronized void closeMetricsExporter() {
+        if (this.metricsExporter != null) {
+            this.metricsExporter.close();
+            this.metricsExporter = null;
+        }
+    }
+
+    /**
+     * @return the link graph being written, or null if {@code linkGraph} is not set
+     */
+    public LinkGraphWriter getLinkGraph() {
+        return this.linkGraph;
+    }
+
+    public synchronized void openLinkGraph() throws IOException {
+        if (getSetting().getLinkGraph() == null) {
+            return;
+        }
+        this.linkGraph = new LinkGraphWriter(new File(getSetting().getLinkGraph()));
+    }
+
+    public synchronized void closeLinkGraph() throws IOException {
+        if (this.linkGraph != null) {
+            this.linkGraph.close();
+            this.linkGraph = null;
+        }
+    }
+
+    public synchronized PreflightChecker getPreflight() {
+        if (this.preflight == null && getSetting().getPreflight()) {
+            this.preflight = new PreflightChecker(getConcurrency(), getSetting().getPreflightTimeout(),
+                    getSetting().getPreflightContentTypes());
+        }
+        return this.preflight;
+    }
+
+    public synchronized void closePreflight() throws IOException {
+        if (this.preflight != null) {
+            this.preflight.close();
+            this.preflight = null;
+        }
+    }
+
+    public void openPostProcessor() throws IOException {
+        final String command = getQuantizer() == null ? getPngQuant() : null;
+        if (getSetting().getDeduplicate()) {
+            this.deduplicator = new ContentDeduplicator(getOutputSink(), new File(getOutputDirectory()));
+        }
+        this.postProcessor = new PNGPostProcessor(command, getOutputSink(), this.deduplicator, this.metrics, getSetting().getCompressionThreads(),
+                getSetting().getCompressionQueueSize(), getSetting().getCompressionBatchSize());
+    }
+
+    public void closePostProcessor() {
+        if (this.postProcessor != null) {
+            this.postProcessor.close();
+            this.postProcessor = null;
+        }
+    }
+
+    public synchronized OutputSink getOutputSink() throws IOException {
+        if (this.outputSink == null) {
+            this.outputSink = OutputSinkFactory.create(getSetting());
+        }
+        return this.outputSink;
+    }
+
+    /**
+     * @return the deduplicator when {@code deduplicate} is enabled and the post processor is open, otherwise null
+     */
+    public ContentDeduplicator getDeduplicator() {
+        return this.deduplicator;
+    }
+
+    public synchronized void closeOutputSink() throws IOException {
+        if (this.deduplicator != null) {
+            this.deduplicator.close();
+            this.deduplicator = null;
+        }
+        if (this.outputSink != null) {
+            this.outputSink.close();
+            this.outputSink = null;
+        }
+    }
+
     public boolean getDone() {
         return done.get();
     }
@@ -162,6 +481,17 @@ public class TraverserContext {
         return getSetting().allowsForAccess(url);
     }
 
+    public void recordWarmUp(long millis) {
+        this.warmUpTime.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * @return milliseconds the slowest worker took to start its browser and load the warm-up url
+     */
+    public long getWarmUpTime() {
+        return this.warmUpTime.get();
+    }
+
     public long incrementTotalCounter() {
         return this.totalCounter.incrementAndGet();
     }
@@ -9,15 +9,20 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class TraverserDriver {
     private final static Logger LOGGER = LoggerFactory.getLogger(TraverserDriver.class);
     private final TraverserContext context;
     private final List<String> fileNames;
     private Thread[] threads;
+    private boolean resume;
+    private Function<TraverserContext, Traverser> traverserFactory = TraverserFactory::create;
 
     public TraverserDriver(TraverserContext context, List<String> fileNames) {
         this.context = context;
@@ -25,10 +30,17 @@ public class TraverserDriver {
     }
 
     public static void run(TraverserContext context, List<String> fileNames) {
+        run(context, fileNames, false);
+    }
+
+    public static void run(TraverserContext context, List<String> fileNames, boolean resume) {
         TraverserDriver driver = new TraverserDriver(context, fileNames);
+        driver.setResume(resume);
         try {
             driver.start();
             driver.join();
+        } catch (IOException e) {
+            LOGGER.error("failed to open output", e);
         } catch (InterruptedException e) {
             LOGGER.error("interrupted", e);
         }
@@ -38,13 +50,62 @@ public class TraverserDriver {
         return this.context;
     }
 
-    public void start() throws InterruptedException {
+    public boolean getResume() {
+        return this.resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    /**
+     * Replaces {@link TraverserFactory#create}, e.g. to crawl with a driver that is not a browser.
+     */
+    public void setTraverserFactory(Function<TraverserContext, Traverser> traverserFactory) {
+        this.traverserFactory = traverserFactory;
+    }
+
+    public void start() throws IOException, InterruptedException {
+        // an invalid viewport fails here, before any browser starts
+        getContext().getViewports();
+
+        boolean restored = false;
+        if (getContext().getJournalDirectory() != null) {
+            try {
+                restored = getContext().openJournal(this.resume) > 0;
+            } catch (IOException e) {
+                LOGGER.error(getContext().getJournalDirectory() + ": failed to open crawl journal", e);
+            }
+        }
+
+        try {
+            getContext().openMetricsExporter();
+        } catch (IOException e) {
+            LOGGER.error("failed to export metrics", e);
+        }
+
+        try {
+            getContext().openLinkGraph();
+        } catch (IOException e) {
+            LOGGER.error(getContext().getSetting().getLinkGraph() + ": failed to open link graph", e);
+        }
+
+        // before the workers start, so that their first captures already go through it
+        getContext().openPostProcessor();
+
+        // the browsers start in parallel while the queue is being filled
+        final CountDownLatch ready = new CountDownLatch(getContext().getConcurrency());
         this.threads = new Thread[getContext().getConcurrency()];
         for (int i = 0; i < getContext().getConcurrency(); i++) {
-            this.threads[i] = new Thread(() -> run());
+            this.threads[i] = new Thread(() -> run(ready), "traverser-" + i);
             this.threads[i].start();
         }
 
+        if (restored) {
+            LOGGER.info("resumed from crawl journal: {} urls remaining", getContext().getQueue().size());
+            return;
+        }
+
         feedUrls(getContext().getSeeds());
 
         for (String fileName: fileNames) {
@@ -60,7 +121,7 @@ public class TraverserDriver {
         while (urls.hasNext()) {
             final String url = urls.next();
             try {
-                getContext().getQueue().put(new URL(url));
+                getContext().enqueue(new URL(url));
             } catch (MalformedURLException e) {
                 LOGGER.error(url + ": malformed error", e);
                 continue;
@@ -88,29 +149,90 @@ public class TraverserDriver {
         }
     }
 
+    /**
+     * Waits until the queue has drained and no visit is running, i.e. no page is left that could
+     * still add links.
+     */
     public void join() throws InterruptedException {
-        while (getContext().getQueue().size() > 0) {
-            Thread.sleep(100);
-        }
-
-        getContext().setDone(true);
+        getContext().getQueue().finish();
         for (Thread thread : this.threads) {
             thread.join();
         }
+        getContext().setDone(true);
+
+        LOGGER.info("browsers warmed up in {} ms", getContext().getWarmUpTime());
+        LOGGER.info("{} loads avoided by url canonicalization", getContext().getCanonicalizer().getAvoidedLoads());
+        final PreflightChecker preflight = getContext().getPreflight();
+        if (preflight != null) {
+            LOGGER.info("{} urls skipped and {} redirects resolved by preflight", preflight.getSkipped(), preflight.getRedirected());
+        }
+        LOGGER.info("waiting for {} screen shots to be compressed", getContext().getPostProcessor().getPending());
+        getContext().closePostProcessor();
+
+        LOGGER.info("stage latencies (ms):\n{}", getContext().getMetrics().summary());
+        getContext().closeMetricsExporter();
+
+        try {
+            getContext().closeLinkGraph();
+        } catch (IOException e) {
+            LOGGER.error("failed to close link graph", e);
+        }
+
+        try {
+            getContext().closeOutputSink();
+        } catch (IOException e) {
+            LOGGER.error("failed to close output", e);
+        }
+
+        try {
+            getContext().closePreflight();
+        } catch (IOException e) {
+            LOGGER.error("failed to close preflight", e);
+        }
+
+        try {
+            getContext().closeJournal();
+        } catch (IOException e) {
+            LOGGER.error("failed to close crawl journal", e);
+        }
     }
 
-    private void run() {
-        LOGGER.debug("start taking screen shots");
+    private void run(CountDownLatch ready) {
+        final Traverser traverser = this.traverserFactory.apply(getContext());
+        if (!warmUp(traverser, ready)) {
+            traverser.close();
+            return;
+        }
 
-        final Traverser traverser = TraverserFactory.create(getContext());
+        LOGGER.debug("start taking screen shots");
+        final int tabs = Math.max(1, getContext().getSetting().getTabs());
+        final List<URL> urls = new ArrayList<>(tabs);
         while (!getContext().getDone()) {
             try {
-                final URL url = getContext().getQueue().poll(500, TimeUnit.MILLISECONDS);
+                // parks until there is work, returns null once the crawl is over
+                final URL url = getContext().getQueue().poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
                 if (url == null) {
-                    continue;
+                    break;
                 }
 
-                traverser.visit(url);
+                // one url per tab, without waiting for more
+                urls.add(url);
+                while (urls.size() < tabs) {
+                    final URL next = getContext().getQueue().poll(0, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    urls.add(next);
+                }
+
+                try {
+                    traverser.visit(urls);
+                } finally {
+                    for (URL visited : urls) {
+                        getContext().getQueue().done(visited);
+                    }
+                    urls.clear();
+                }
             } catch (RuntimeException e) {
                 LOGGER.info("unexpected exception", e);
             } catch (InterruptedException e) {
@@ -122,4 +244,34 @@ public class TraverserDriver {
         traverser.close();
         LOGGER.info("finish taking screen shots");
     }
+
+    /**
+     * Starts the browser of {@code traverser} and waits until all workers are done with theirs.
+     * A browser that fails to start is started again on the first visit.
+     *
+     * @return false if interrupted
+     */
+    private boolean warmUp(Traverser traverser, CountDownLatch ready) {
+        final long start = System.currentTimeMillis();
+        try {
+            traverser.warmUp();
+        } catch (RuntimeException e) {
+            // e.g. no driver executable; the first visit tries again
+            LOGGER.error("failed to warm up browser", e);
+        } catch (InterruptedException e) {
+            LOGGER.info("interrupted");
+            ready.countDown();
+            return false;
+        }
+
+        getContext().recordWarmUp(System.currentTimeMillis() - start);
+        ready.countDown();
+        try {
+            ready.await();
+        } catch (InterruptedException e) {
+            LOGGER.info("interrupted");
+            return false;
+        }
+        return true;
+    }
 }
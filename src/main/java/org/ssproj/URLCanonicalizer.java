@@ -0,0 +1,167 @@
+package org.ssproj;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites urls that address the same page into one form, so that they are loaded only once:
+ * lowercase host, no default port, no fragment, selected query parameters dropped or sorted,
+ * session id path parameters ({@code ;jsessionid=...}) removed and trailing slashes normalized.
+ */
+public class URLCanonicalizer {
+    private final static Logger LOGGER = LoggerFactory.getLogger(URLCanonicalizer.class);
+
+    private final boolean lowercaseHost;
+    private final boolean stripDefaultPort;
+    private final Pattern dropQueryParameters;
+    private final boolean sortQueryParameters;
+    private final Pattern sessionIdParameters;
+    private final String trailingSlash;
+    private final AtomicLong avoidedLoads = new AtomicLong();
+    private final VisitedSet avoidedUrls = new FingerprintVisitedSet(1024, false);
+
+    public URLCanonicalizer(CanonicalizationSetting setting) {
+        this.lowercaseHost = setting.getLowercaseHost();
+        this.stripDefaultPort = setting.getStripDefaultPort();
+        this.dropQueryParameters = compile(setting.getDropQueryParameters());
+        this.sortQueryParameters = setting.getSortQueryParameters();
+        this.sessionIdParameters = compile(setting.getSessionIdParameters());
+        this.trailingSlash = setting.getTrailingSlash();
+    }
+
+    private static Pattern compile(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile("(?:" + String.join(")|(?:", names) + ")", Pattern.CASE_INSENSITIVE);
+    }
+
+    /**
+     * @return the canonical form of {@code url}, or {@code url} itself if it already is canonical
+     */
+    public URL apply(URL url) {
+        final StringBuilder canonical = new StringBuilder(url.toString().length());
+        canonical.append(url.getProtocol()).append("://");
+        if (url.getUserInfo() != null) {
+            canonical.append(url.getUserInfo()).append('@');
+        }
+
+        canonical.append(this.lowercaseHost ? url.getHost().toLowerCase(Locale.ROOT) : url.getHost());
+        final int port = url.getPort();
+        if (port != -1 && !(this.stripDefaultPort && port == url.getDefaultPort())) {
+            canonical.append(':').append(port);
+        }
+
+        canonical.append(path(url.getPath()));
+
+        final String query = query(url.getQuery());
+        if (query != null) {
+            canonical.append('?').append(query);
+        }
+
+        final String value = canonical.toString();
+        if (value.equals(url.toString())) {
+            return url;
+        }
+
+        try {
+            return new URL(value);
+        } catch (MalformedURLException e) {
+            LOGGER.debug(url + ": failed to canonicalize", e);
+            return url;
+        }
+    }
+
+    private String path(String path) {
+        if (path.isEmpty()) {
+            return "/";
+        }
+
+        if (this.sessionIdParameters != null && path.indexOf(';') >= 0) {
+            final String[] segments = path.split("/", -1);
+            final StringBuilder buffer = new StringBuilder(path.length());
+            for (int s = 0; s < segments.length; s++) {
+                if (s > 0) {
+                    buffer.append('/');
+                }
+                final String[] parameters = segments[s].split(";", -1);
+                buffer.append(parameters[0]);
+                for (int i = 1; i < parameters.length; i++) {
+                    final int equals = parameters[i].indexOf('=');
+                    final String name = equals >= 0 ? parameters[i].substring(0, equals) : parameters[i];
+                    if (!this.sessionIdParameters.matcher(name).matches()) {
+                        buffer.append(';').append(parameters[i]);
+                    }
+                }
+            }
+            path = buffer.toString();
+        }
+
+        if ("add".equalsIgnoreCase(this.trailingSlash)) {
+            final String last = path.substring(path.lastIndexOf('/') + 1);
+            if (!last.isEmpty() && last.indexOf('.') < 0 && last.indexOf(';') < 0) {
+                path = path + "/";
+            }
+        } else if ("remove".equalsIgnoreCase(this.trailingSlash)) {
+            while (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+        }
+
+        return path;
+    }
+
+    private String query(String query) {
+        if (query == null || (this.dropQueryParameters == null && !this.sortQueryParameters)) {
+            return query;
+        }
+
+        final List<String> parameters = new ArrayList<>();
+        for (String parameter : query.split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            if (this.dropQueryParameters != null && this.dropQueryParameters.matcher(name(parameter)).matches()) {
+                continue;
+            }
+            parameters.add(parameter);
+        }
+
+        if (this.sortQueryParameters) {
+            // stable: repeated parameters keep their relative order
+            parameters.sort(Comparator.comparing(URLCanonicalizer::name));
+        }
+
+        return parameters.isEmpty() ? null : String.join("&", parameters);
+    }
+
+    private static String name(String parameter) {
+        final int equals = parameter.indexOf('=');
+        return equals >= 0 ? parameter.substring(0, equals) : parameter;
+    }
+
+    /**
+     * Counts a url that is not loaded only because its canonical form has been visited. A url
+     * is counted once, however many pages link to it.
+     *
+     * @param url the url before canonicalization
+     */
+    public void avoided(URL url) {
+        if (this.avoidedUrls.add(url.toString())) {
+            this.avoidedLoads.incrementAndGet();
+        }
+    }
+
+    public long getAvoidedLoads() {
+        return this.avoidedLoads.get();
+    }
+}
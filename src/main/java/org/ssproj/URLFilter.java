@@ -0,0 +1,224 @@
+package org.ssproj;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Access and extraction rules of a {@link TraverseSetting}, compiled once.
+ *
+ * Rules are plain strings, globs (containing {@code *} or {@code ?}) or regular expressions
+ * prefixed with {@code regex:}. Domain rules match the host, optionally with {@code :port};
+ * glob and regex domain rules match the host only. Path rules match the beginning of the path:
+ * plain ones through a prefix trie, the others as one combined pattern.
+ *
+ * An empty domain list allows no url, an empty include list includes every path, an empty
+ * exclude list excludes none and an empty suffix list allows every suffix. A null list, as
+ * left by a key without value in the YAML, counts as empty. A suffix is the
+ * part of the last path segment from its last dot; paths ending in a slash have the suffix
+ * {@code /}.
+ *
+ * {@link #reject} does not allocate unless a glob or regex rule is consulted for the first
+ * time on a thread.
+ */
+public class URLFilter {
+    public static final String NOT_IN_DOMAINS = "not included in domains";
+    public static final String EXCLUDED_BY_PATHS = "excluded by paths";
+    public static final String NOT_INCLUDED_BY_PATHS = "not included by paths";
+    public static final String EXCLUDED_BY_SUFFIXES = "excluded by suffixes";
+
+    private static final String REGEX_PREFIX = "regex:";
+    private static final int[] ANY_PORT = new int[0];
+
+    private final Map<String, int[]> hosts = new HashMap<>();
+    private final ThreadLocal<Matcher> hostPattern;
+    private final PathRules includePaths;
+    private final PathRules excludePaths;
+    private final String[] suffixes;
+    private final boolean directories;
+    private final boolean anySuffix;
+
+    public URLFilter(Collection<String> domains, Collection<String> includePaths, Collection<String> excludePaths, Collection<String> allowSuffixes) {
+        domains = orEmpty(domains);
+        includePaths = orEmpty(includePaths);
+        excludePaths = orEmpty(excludePaths);
+        allowSuffixes = orEmpty(allowSuffixes);
+
+        final List<String> patterns = new ArrayList<>();
+        for (String domain : domains) {
+            if (isPattern(domain)) {
+                patterns.add(toRegex(domain));
+                continue;
+            }
+
+            final int colon = domain.lastIndexOf(':');
+            if (colon < 0) {
+                this.hosts.put(domain, ANY_PORT);
+            } else {
+                final String host = domain.substring(0, colon);
+                final int port = Integer.parseInt(domain.substring(colon + 1));
+                final int[] ports = this.hosts.get(host);
+                if (ports == null) {
+                    this.hosts.put(host, new int[] {port});
+                } else if (ports != ANY_PORT) {
+                    final int[] extended = Arrays.copyOf(ports, ports.length + 1);
+                    extended[ports.length] = port;
+                    this.hosts.put(host, extended);
+                }
+            }
+        }
+        this.hostPattern = matcher(patterns);
+
+        this.includePaths = includePaths.isEmpty() ? null : new PathRules(includePaths);
+        this.excludePaths = excludePaths.isEmpty() ? null : new PathRules(excludePaths);
+
+        final List<String> suffixes = new ArrayList<>();
+        boolean directories = false;
+        for (String suffix : allowSuffixes) {
+            if (suffix.equals("/")) {
+                directories = true;
+            } else {
+                suffixes.add(suffix);
+            }
+        }
+        this.suffixes = suffixes.toArray(new String[suffixes.size()]);
+        this.directories = directories;
+        this.anySuffix = allowSuffixes.isEmpty();
+    }
+
+    /**
+     * @return null if {@code url} passes, otherwise the reason it was rejected
+     */
+    public String reject(URL url) {
+        if (!allowsHost(url.getHost(), url.getPort())) {
+            return NOT_IN_DOMAINS;
+        }
+
+        final String path = url.getPath();
+        if (this.excludePaths != null && this.excludePaths.matches(path)) {
+            return EXCLUDED_BY_PATHS;
+        }
+        if (this.includePaths != null && !this.includePaths.matches(path)) {
+            return NOT_INCLUDED_BY_PATHS;
+        }
+        if (!allowsSuffix(path)) {
+            return EXCLUDED_BY_SUFFIXES;
+        }
+        return null;
+    }
+
+    public boolean allows(URL url) {
+        return reject(url) == null;
+    }
+
+    public boolean excludes(String path) {
+        return this.excludePaths != null && this.excludePaths.matches(path);
+    }
+
+    public boolean allowsHost(String host, int port) {
+        final int[] ports = this.hosts.get(host);
+        if (ports != null) {
+            if (ports == ANY_PORT) {
+                return true;
+            }
+            for (int p : ports) {
+                if (p == port) {
+                    return true;
+                }
+            }
+        }
+
+        return this.hostPattern != null && this.hostPattern.get().reset(host).matches();
+    }
+
+    public boolean allowsSuffix(String path) {
+        if (this.anySuffix) {
+            return true;
+        }
+
+        final int slash = path.lastIndexOf('/');
+        final int dot = path.lastIndexOf('.');
+        if (dot >= 0 && dot > slash) {
+            final int length = path.length() - dot;
+            for (String suffix : this.suffixes) {
+                if (suffix.length() == length && path.regionMatches(dot, suffix, 0, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return this.directories && (path.isEmpty() || slash == path.length() - 1);
+    }
+
+    private static Collection<String> orEmpty(Collection<String> rules) {
+        return rules != null ? rules : Collections.<String>emptyList();
+    }
+
+    private static boolean isPattern(String rule) {
+        return rule.startsWith(REGEX_PREFIX) || rule.indexOf('*') >= 0 || rule.indexOf('?') >= 0;
+    }
+
+    private static String toRegex(String rule) {
+        if (rule.startsWith(REGEX_PREFIX)) {
+            return rule.substring(REGEX_PREFIX.length());
+        }
+
+        final StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int i = 0; i < rule.length(); i++) {
+            final char c = rule.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    regex.append(Pattern.quote(rule.substring(start, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                start = i + 1;
+            }
+        }
+        if (start < rule.length()) {
+            regex.append(Pattern.quote(rule.substring(start)));
+        }
+        return regex.toString();
+    }
+
+    private static ThreadLocal<Matcher> matcher(List<String> regexes) {
+        if (regexes.isEmpty()) {
+            return null;
+        }
+
+        final Pattern pattern = Pattern.compile("(?:" + String.join(")|(?:", regexes) + ")");
+        return ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+    private static final class PathRules {
+        private final PathPrefixTrie prefixes = new PathPrefixTrie();
+        private final ThreadLocal<Matcher> pattern;
+
+        PathRules(Collection<String> rules) {
+            final List<String> patterns = new ArrayList<>();
+            for (String rule : rules) {
+                if (isPattern(rule)) {
+                    patterns.add(toRegex(rule));
+                } else {
+                    this.prefixes.add(rule);
+                }
+            }
+            this.pattern = matcher(patterns);
+        }
+
+        boolean matches(String path) {
+            if (this.prefixes.matches(path)) {
+                return true;
+            }
+            return this.pattern != null && this.pattern.get().reset(path).lookingAt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.ssproj;
+
+/**
+ * A window size to capture a page at, written as {@code WIDTHxHEIGHT}, e.g. {@code 375x667}.
+ */
+public class Viewport {
+    private final int width;
+    private final int height;
+
+    public Viewport(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("invalid viewport: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    public static Viewport parse(String value) {
+        final int separator = value.toLowerCase().indexOf('x');
+        if (separator < 0) {
+            throw new IllegalArgumentException("invalid viewport: " + value);
+        }
+        try {
+            return new Viewport(Integer.parseInt(value.substring(0, separator).trim()),
+                    Integer.parseInt(value.substring(separator + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid viewport: " + value, e);
+        }
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * @return the suffix of the output file name, e.g. {@code @375x667}
+     */
+    public String getSuffix() {
+        return "@" + this;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Viewport)) {
+            return false;
+        }
+        final Viewport other = (Viewport) obj;
+        return this.width == other.width && this.height == other.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.width * 31 + this.height;
+    }
+
+    @Override
+    public String toString() {
+        return this.width + "x" + this.height;
+    }
+}
@@ -0,0 +1,27 @@
+package org.ssproj;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Set of visited urls shared by all workers.
+ */
+public interface VisitedSet {
+    boolean add(String url);
+
+    boolean contains(String url);
+
+    boolean remove(String url);
+
+    long size();
+
+    /**
+     * @return estimated heap usage in bytes
+     */
+    long memoryUsage();
+
+    void save(DataOutputStream output) throws IOException;
+
+    void load(DataInputStream input) throws IOException;
+}
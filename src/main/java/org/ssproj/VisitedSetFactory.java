@@ -0,0 +1,17 @@
+package org.ssproj;
+
+public class VisitedSetFactory {
+    public static VisitedSet create(TraverseSetting setting) {
+        final String type = setting.getVisitedSet();
+        final VisitedSet visitedSet;
+        if (type == null || type.equalsIgnoreCase("string")) {
+            visitedSet = new StringVisitedSet();
+        } else if (type.equalsIgnoreCase("fingerprint")) {
+            visitedSet = new FingerprintVisitedSet(setting.getVisitedSetExpectedSize(), setting.getVisitedSetBloomFilter());
+        } else {
+            throw new IllegalArgumentException("unknown visited set: " + type);
+        }
+
+        return visitedSet;
+    }
+}
@@ -0,0 +1,214 @@
+package org.ssproj;
+
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+/**
+ * Compares two screen shots pixel by pixel and by structural similarity (SSIM on luma over 8x8
+ * blocks). The images are split into horizontal bands that are compared in parallel; pixels
+ * outside the overlap of differently sized images count as changed.
+ */
+public class VisualDiff {
+    private static final int TILE_HEIGHT = 64;
+    private static final int BLOCK_SIZE = 8;
+    private static final double C1 = (0.01 * 255) * (0.01 * 255);
+    private static final double C2 = (0.03 * 255) * (0.03 * 255);
+    private static final int CHANGED_RGB = 0xff0000;
+
+    private final int threshold;
+
+    public static class Result {
+        private final long changedPixels;
+        private final long totalPixels;
+        private final double meanDifference;
+        private final double ssim;
+        private final BufferedImage heatmap;
+
+        Result(long changedPixels, long totalPixels, double meanDifference, double ssim, BufferedImage heatmap) {
+            this.changedPixels = changedPixels;
+            this.totalPixels = totalPixels;
+            this.meanDifference = meanDifference;
+            this.ssim = ssim;
+            this.heatmap = heatmap;
+        }
+
+        public long getChangedPixels() {
+            return this.changedPixels;
+        }
+
+        public long getTotalPixels() {
+            return this.totalPixels;
+        }
+
+        public double getChangedRatio() {
+            return this.totalPixels > 0 ? (double) this.changedPixels / this.totalPixels : 0;
+        }
+
+        /**
+         * @return the mean of the largest channel difference (0 - 255) over all pixels
+         */
+        public double getMeanDifference() {
+            return this.meanDifference;
+        }
+
+        public double getSsim() {
+            return this.ssim;
+        }
+
+        /**
+         * @return the after image faded to gray with changed pixels in red, or null if it was
+         *     not requested
+         */
+        public BufferedImage getHeatmap() {
+            return this.heatmap;
+        }
+
+        /**
+         * @return the numbers only, for results that are kept after the heatmap has been written
+         */
+        Result withoutHeatmap() {
+            return this.heatmap == null ? this : new Result(this.changedPixels, this.totalPixels, this.meanDifference, this.ssim, null);
+        }
+    }
+
+    private static class Tile {
+        private long changedPixels;
+        private long difference;
+        private double ssim;
+        private int blocks;
+
+        Tile add(Tile other) {
+            this.changedPixels += other.changedPixels;
+            this.difference += other.difference;
+            this.ssim += other.ssim;
+            this.blocks += other.blocks;
+            return this;
+        }
+    }
+
+    /**
+     * @param threshold a pixel counts as changed if one of its channels differs by more than this
+     */
+    public VisualDiff(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public Result compare(BufferedImage before, BufferedImage after, boolean heatmap) {
+        final int width = Math.max(before.getWidth(), after.getWidth());
+        final int height = Math.max(before.getHeight(), after.getHeight());
+        final int overlapWidth = Math.min(before.getWidth(), after.getWidth());
+        final int overlapHeight = Math.min(before.getHeight(), after.getHeight());
+        final BufferedImage image = heatmap ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB) : null;
+
+        final int tiles = (overlapHeight + TILE_HEIGHT - 1) / TILE_HEIGHT;
+        final Tile total = IntStream.range(0, tiles).parallel()
+                .mapToObj(tile -> compareTile(before, after, image, overlapWidth,
+                        tile * TILE_HEIGHT, Math.min(overlapHeight, (tile + 1) * TILE_HEIGHT)))
+                .reduce(Tile::add).orElseGet(Tile::new);
+
+        final long totalPixels = (long) width * height;
+        final long overlapPixels = (long) overlapWidth * overlapHeight;
+        final long outsidePixels = totalPixels - overlapPixels;
+        if (image != null && outsidePixels > 0) {
+            fillOutside(image, overlapWidth, overlapHeight);
+        }
+
+        // the area outside the overlap is entirely different: full difference, no similarity
+        final double meanDifference = totalPixels > 0 ? (total.difference + 255.0 * outsidePixels) / totalPixels : 0;
+        final double ssim = total.blocks > 0 ? total.ssim / total.blocks * overlapPixels / totalPixels : (totalPixels > 0 ? 0 : 1);
+        return new Result(total.changedPixels + outsidePixels, totalPixels, meanDifference, ssim, image);
+    }
+
+    private Tile compareTile(BufferedImage before, BufferedImage after, BufferedImage heatmap, int width, int top, int bottom) {
+        final Tile tile = new Tile();
+        final int rows = bottom - top;
+        if (width == 0 || rows == 0) {
+            return tile;
+        }
+
+        // getRGB normalizes every image type to ARGB, one call per band
+        final int[] a = before.getRGB(0, top, width, rows, null, 0, width);
+        final int[] b = after.getRGB(0, top, width, rows, null, 0, width);
+        final int[] lumaA = new int[a.length];
+        final int[] lumaB = new int[b.length];
+        final int[] output = heatmap != null ? new int[a.length] : null;
+
+        for (int i = 0; i < a.length; i++) {
+            final int pa = a[i];
+            final int pb = b[i];
+            lumaA[i] = luma(pa);
+            lumaB[i] = luma(pb);
+
+            final int difference = pa == pb ? 0 : Math.max(Math.abs(((pa >> 16) & 0xff) - ((pb >> 16) & 0xff)),
+                    Math.max(Math.abs(((pa >> 8) & 0xff) - ((pb >> 8) & 0xff)), Math.abs((pa & 0xff) - (pb & 0xff))));
+            tile.difference += difference;
+            final boolean changed = difference > this.threshold;
+            if (changed) {
+                tile.changedPixels++;
+            }
+
+            if (output != null) {
+                final int gray = 170 + lumaB[i] / 3;
+                if (changed) {
+                    final int fade = gray * (255 - difference) / 255;
+                    output[i] = 0xff0000 | (fade << 8) | fade;
+                } else {
+                    output[i] = (gray << 16) | (gray << 8) | gray;
+                }
+            }
+        }
+
+        for (int y = 0; y < rows; y += BLOCK_SIZE) {
+            for (int x = 0; x < width; x += BLOCK_SIZE) {
+                tile.ssim += ssim(lumaA, lumaB, width, x, y, Math.min(BLOCK_SIZE, width - x), Math.min(BLOCK_SIZE, rows - y));
+                tile.blocks++;
+            }
+        }
+
+        if (output != null) {
+            // bands do not overlap, so they can be written concurrently
+            heatmap.setRGB(0, top, width, rows, output, 0, width);
+        }
+        return tile;
+    }
+
+    private static double ssim(int[] a, int[] b, int stride, int left, int top, int width, int height) {
+        final int n = width * height;
+        long sumA = 0;
+        long sumB = 0;
+        long sumAA = 0;
+        long sumBB = 0;
+        long sumAB = 0;
+        for (int y = top; y < top + height; y++) {
+            for (int i = y * stride + left, end = i + width; i < end; i++) {
+                final int va = a[i];
+                final int vb = b[i];
+                sumA += va;
+                sumB += vb;
+                sumAA += va * va;
+                sumBB += vb * vb;
+                sumAB += va * vb;
+            }
+        }
+
+        final double meanA = (double) sumA / n;
+        final double meanB = (double) sumB / n;
+        final double varianceA = (double) sumAA / n - meanA * meanA;
+        final double varianceB = (double) sumBB / n - meanB * meanB;
+        final double covariance = (double) sumAB / n - meanA * meanB;
+        return ((2 * meanA * meanB + C1) * (2 * covariance + C2))
+                / ((meanA * meanA + meanB * meanB + C1) * (varianceA + varianceB + C2));
+    }
+
+    private static int luma(int rgb) {
+        return (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+    }
+
+    private static void fillOutside(BufferedImage image, int overlapWidth, int overlapHeight) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = y < overlapHeight ? overlapWidth : 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, CHANGED_RGB);
+            }
+        }
+    }
+}
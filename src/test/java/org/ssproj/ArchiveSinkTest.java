@@ -0,0 +1,102 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ArchiveSinkTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("archive-sink").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    private static String commit(ArchiveSink sink, String url, byte[] data) throws IOException {
+        final File file = sink.getFile(new URL(url));
+        Files.write(file.toPath(), data);
+        final String location = sink.commit(file);
+        assertFalse(file.exists());
+        return location;
+    }
+
+    /**
+     * Reads the data of the entry at {@code offset} from its local header, as a reader without
+     * central directory has to.
+     */
+    private byte[] readEntry(String segment, long offset, int size) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(this.directory, segment), "r")) {
+            file.seek(offset + 26);
+            final int nameLength = Short.reverseBytes(file.readShort()) & 0xffff;
+            final int extraLength = Short.reverseBytes(file.readShort()) & 0xffff;
+            file.seek(offset + 30 + nameLength + extraLength);
+            final byte[] data = new byte[size];
+            file.readFully(data);
+            return data;
+        }
+    }
+
+    @Test
+    public void indexIsReadableBeforeClose() throws IOException {
+        final ArchiveSink sink = new ArchiveSink(this.directory, 1024 * 1024);
+        final byte[] first = "first capture".getBytes(StandardCharsets.UTF_8);
+        final byte[] second = "second capture".getBytes(StandardCharsets.UTF_8);
+        final String location = commit(sink, "http://example.com/a.html", first);
+        commit(sink, "http://example.com/b.html", second);
+        sink.commitDuplicate(sink.getFile(new URL("http://example.com/c.html")), location);
+
+        // as if the process died here
+        final List<String> lines = Files.readAllLines(new File(this.directory, "captures.idx").toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertEquals("example.com/c.html.png\t" + location, lines.get(2));
+        for (int i = 0; i < 2; i++) {
+            final String[] fields = lines.get(i).split("\t");
+            assertArrayEquals(i == 0 ? first : second,
+                    readEntry(fields[1], Long.parseLong(fields[2]), Integer.parseInt(fields[3])));
+        }
+        sink.close();
+    }
+
+    @Test
+    public void rollsOverToNewSegment() throws IOException {
+        try (ArchiveSink sink = new ArchiveSink(this.directory, 100)) {
+            commit(sink, "http://example.com/a.html", new byte[80]);
+            commit(sink, "http://example.com/b.html", new byte[80]);
+        }
+
+        try (ZipFile zip = new ZipFile(new File(this.directory, "captures-00002.zip"))) {
+            assertEquals(80, zip.getEntry("example.com/b.html.png").getSize());
+        }
+    }
+
+    @Test
+    public void captureAgainInSameSegment() throws IOException {
+        try (ArchiveSink sink = new ArchiveSink(this.directory, 1024 * 1024)) {
+            final String location = commit(sink, "http://example.com/a.html", new byte[] {1});
+            assertEquals(location, commit(sink, "http://example.com/a.html", new byte[] {2}));
+        }
+
+        try (ZipFile zip = new ZipFile(new File(this.directory, "captures-00001.zip"))) {
+            assertEquals(1, zip.size());
+        }
+    }
+}
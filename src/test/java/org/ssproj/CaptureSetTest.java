@@ -0,0 +1,59 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CaptureSetTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("capture-set").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    @Test
+    public void shardedViewportsKeepTheirSuffix() throws Exception {
+        final URL url = new URL("http://example.com/a.html");
+        try (ShardedDirectorySink sink = new ShardedDirectorySink(this.directory)) {
+            Files.write(sink.getFile(url).toPath(), new byte[] {1});
+            Files.write(sink.getFile(url, "@375x667").toPath(), new byte[] {2});
+            Files.write(sink.getFile(url, "@1280x800").toPath(), new byte[] {3});
+        }
+
+        final CaptureSet set = CaptureSet.load(this.directory);
+        assertEquals(Arrays.asList("example.com/a.html.png", "example.com/a.html@1280x800.png", "example.com/a.html@375x667.png"),
+                new ArrayList<>(set.getCaptures().keySet()));
+        assertArrayEquals(new byte[] {2}, set.getCaptures().get("example.com/a.html@375x667.png").read());
+    }
+
+    @Test
+    public void shardedAndDirectoryKeysMatch() throws Exception {
+        final URL url = new URL("http://example.com/a/?q=1");
+        final File sharded = new File(this.directory, "sharded");
+        final File plain = new File(this.directory, "plain");
+        try (ShardedDirectorySink sink = new ShardedDirectorySink(sharded)) {
+            Files.write(sink.getFile(url, "@375x667").toPath(), new byte[] {1});
+        }
+        final DirectorySink sink = new DirectorySink(plain);
+        Files.write(sink.getFile(url, "@375x667").toPath(), new byte[] {1});
+
+        assertEquals(CaptureSet.load(plain).getCaptures().keySet(), CaptureSet.load(sharded).getCaptures().keySet());
+    }
+}
@@ -0,0 +1,145 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CrawlJournalTest {
+    private static final String A = "http://example.com/a";
+    private static final String B = "http://example.com/b";
+    private static final String C = "http://example.com/c";
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("crawl-journal").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    private TraverserContext open(boolean resume) throws IOException, InterruptedException {
+        final TraverserContext context = new TraverserContext();
+        context.setJournalDirectory(this.directory.getPath());
+        context.openJournal(resume);
+        return context;
+    }
+
+    private static void visit(TraverserContext context, String url) throws Exception {
+        assertEquals(url, context.getQueue().poll(1, TimeUnit.SECONDS).toString());
+        assertTrue(context.addCheck(new URL(url)));
+    }
+
+    @Test
+    public void snapshotRestoresUrlsInFlight() throws Exception {
+        final TraverserContext context = open(false);
+        context.enqueue(new URL(A));
+        context.enqueue(new URL(B));
+        visit(context, A);
+        context.completeCheck(new URL(A));
+        visit(context, B);
+        context.getJournal().snapshot();
+        context.closeJournal();
+
+        final TraverserContext resumed = open(true);
+        assertEquals(Collections.singletonList(new URL(B)), resumed.getQueue().toList());
+        assertTrue(resumed.containsCheck(A));
+        assertFalse(resumed.containsCheck(B));
+        resumed.closeJournal();
+    }
+
+    @Test
+    public void snapshotKeepsUrlsPolledButNotStarted() throws Exception {
+        final TraverserContext context = open(false);
+        context.enqueue(new URL(A));
+        context.enqueue(new URL(B));
+        // taken by a worker that has not checked it yet, e.g. while its browser starts
+        assertEquals(A, context.getQueue().poll(1, TimeUnit.SECONDS).toString());
+        context.getJournal().snapshot();
+        context.closeJournal();
+
+        final TraverserContext resumed = open(true);
+        assertEquals(2, resumed.getQueue().size());
+        assertFalse(resumed.containsCheck(A));
+        resumed.closeJournal();
+    }
+
+    @Test
+    public void snapshotDropsQueuedUrlsVisitedSince() throws Exception {
+        final TraverserContext context = open(false);
+        context.enqueue(new URL(A));
+        visit(context, A);
+        context.completeCheck(new URL(A));
+        // found again on a later page, still queued once more
+        context.enqueue(new URL(A), 1);
+        context.enqueue(new URL(C), 1);
+        context.getJournal().snapshot();
+        context.closeJournal();
+
+        final TraverserContext resumed = open(true);
+        assertEquals(Collections.singletonList(new URL(C)), resumed.getQueue().toList());
+        assertTrue(resumed.containsCheck(A));
+        resumed.closeJournal();
+    }
+
+    @Test
+    public void abandonedUrlsAreNotRestored() throws Exception {
+        final TraverserContext context = open(false);
+        context.enqueue(new URL(A));
+        visit(context, A);
+        // e.g. over the screen shot limit
+        context.abandonCheck(new URL(A));
+        context.getJournal().snapshot();
+        context.closeJournal();
+
+        final TraverserContext resumed = open(true);
+        assertEquals(0, resumed.getQueue().size());
+        assertTrue(resumed.containsCheck(A));
+        resumed.closeJournal();
+    }
+
+    @Test
+    public void replaysSegmentsWithoutSnapshot() throws Exception {
+        final TraverserContext context = open(false);
+        context.enqueue(new URL(A));
+        context.enqueue(new URL(B));
+        context.enqueue(new URL(C));
+        visit(context, A);
+        context.completeCheck(new URL(A));
+        // a crash: the journal is flushed but never snapshotted
+        context.getJournal().flush();
+
+        final TraverserContext resumed = open(true);
+        assertEquals(2, resumed.getQueue().size());
+        assertTrue(resumed.containsCheck(A));
+        assertFalse(resumed.containsCheck(B));
+        resumed.closeJournal();
+        context.closeJournal();
+    }
+
+    @Test
+    public void ignoresTornLastLine() throws Exception {
+        Files.write(new File(this.directory, "journal-00000001.log").toPath(),
+                ("E\t0\t" + A + "\nE\t0\t" + B).getBytes(StandardCharsets.UTF_8));
+
+        final TraverserContext resumed = open(true);
+        assertEquals(Collections.singletonList(new URL(A)), resumed.getQueue().toList());
+        resumed.closeJournal();
+    }
+}
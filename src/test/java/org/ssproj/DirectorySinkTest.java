@@ -0,0 +1,75 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirectorySinkTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("directory-sink").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    @Test
+    public void relativePath() throws Exception {
+        assertEquals("example.com/index.html.png", DirectorySink.relativePath(new URL("http://example.com/")));
+        assertEquals("example.com_8080/a/b.html.png", DirectorySink.relativePath(new URL("http://example.com:8080/a/b.html")));
+        assertEquals("example.com/a/index.html%3Fq=1.png", DirectorySink.relativePath(new URL("http://example.com/a/?q=1")));
+    }
+
+    @Test
+    public void percentInPathDoesNotCollideWithQuery() throws Exception {
+        assertEquals("example.com/a%253Fb.png", DirectorySink.relativePath(new URL("http://example.com/a%3Fb")));
+        assertEquals("example.com/a%3Fb.png", DirectorySink.relativePath(new URL("http://example.com/a?b")));
+    }
+
+    @Test
+    public void suffixedFile() throws Exception {
+        final DirectorySink sink = new DirectorySink(this.directory);
+        final URL url = new URL("http://example.com/a.html");
+        assertEquals(new File(this.directory, "example.com/a.html@375x667.png"), sink.getFile(url, "@375x667"));
+        assertEquals(sink.getFile(url), sink.getFile(url, ""));
+    }
+
+    @Test
+    public void getFileLeavesExistingCapture() throws Exception {
+        final DirectorySink sink = new DirectorySink(this.directory);
+        final File file = sink.getFile(new URL("http://example.com/a.html"));
+        assertTrue(file.getParentFile().isDirectory());
+        Files.write(file.toPath(), new byte[] {1});
+
+        assertEquals(file, sink.getFile(new URL("http://example.com/a.html")));
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void writerReplacesHardLinkedCapture() throws Exception {
+        final DirectorySink sink = new DirectorySink(this.directory);
+        final File original = sink.getFile(new URL("http://example.com/a.html"));
+        Files.write(original.toPath(), new byte[] {1, 2, 3});
+        final File duplicate = sink.getFile(new URL("http://example.com/b.html"));
+        Files.createLink(duplicate.toPath(), original.toPath());
+
+        Traverser.writeBytes(new byte[] {4, 5}, duplicate);
+
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(original.toPath()));
+        assertArrayEquals(new byte[] {4, 5}, Files.readAllBytes(duplicate.toPath()));
+    }
+}
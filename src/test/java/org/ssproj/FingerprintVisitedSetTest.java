@@ -0,0 +1,106 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FingerprintVisitedSetTest {
+    private static String url(int i) {
+        return "http://example.com/page/" + i + ".html";
+    }
+
+    @Test
+    public void addContainsRemove() {
+        for (boolean bloomFilter : new boolean[] {false, true}) {
+            final VisitedSet set = new FingerprintVisitedSet(16, bloomFilter);
+            assertFalse(set.contains(url(1)));
+            assertTrue(set.add(url(1)));
+            assertFalse(set.add(url(1)));
+            assertTrue(set.contains(url(1)));
+            assertEquals(1, set.size());
+
+            assertTrue(set.remove(url(1)));
+            assertFalse(set.remove(url(1)));
+            assertFalse(set.contains(url(1)));
+            assertTrue(set.add(url(1)));
+        }
+    }
+
+    @Test
+    public void growsBeyondExpectedSize() {
+        final VisitedSet set = new FingerprintVisitedSet(16, true);
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(set.add(url(i)));
+        }
+        assertEquals(100000, set.size());
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(set.contains(url(i)));
+        }
+        for (int i = 100000; i < 110000; i++) {
+            assertFalse(set.contains(url(i)));
+        }
+    }
+
+    @Test
+    public void fingerprintIsNeverZero() {
+        assertNotEquals(0L, FingerprintVisitedSet.fingerprint(""));
+        assertNotEquals(FingerprintVisitedSet.fingerprint(url(1)), FingerprintVisitedSet.fingerprint(url(2)));
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception {
+        final VisitedSet set = new FingerprintVisitedSet(16, true);
+        for (int i = 0; i < 1000; i++) {
+            set.add(url(i));
+        }
+        set.remove(url(0));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            set.save(output);
+        }
+        final VisitedSet loaded = new FingerprintVisitedSet(16, true);
+        loaded.load(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(999, loaded.size());
+        assertFalse(loaded.contains(url(0)));
+        for (int i = 1; i < 1000; i++) {
+            assertTrue(loaded.contains(url(i)));
+        }
+    }
+
+    @Test
+    public void concurrentAddsClaimEachUrlOnce() throws Exception {
+        final VisitedSet set = new FingerprintVisitedSet(1024, false);
+        final AtomicInteger added = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    if (set.add(url(i))) {
+                        added.incrementAndGet();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20000, added.get());
+        assertEquals(20000, set.size());
+    }
+}
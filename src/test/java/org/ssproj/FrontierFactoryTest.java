@@ -0,0 +1,38 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrontierFactoryTest {
+    private static TraverseSetting setting(String frontier, int maxDepth) {
+        final TraverseSetting setting = new TraverseSetting();
+        setting.setFrontier(frontier);
+        setting.setMaxDepth(maxDepth);
+        return setting;
+    }
+
+    @Test
+    public void priorityFrontierLimitsDepth() {
+        final Frontier frontier = FrontierFactory.create(setting("priority", 2));
+        assertTrue(frontier.accepts(2));
+        assertFalse(frontier.accepts(3));
+    }
+
+    @Test
+    public void unlimitedDepthWithAnyFrontier() {
+        assertTrue(FrontierFactory.create(setting("fifo", 0)).accepts(100));
+        assertTrue(FrontierFactory.create(setting("host", 0)).accepts(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxDepthWithFifoFrontier() {
+        FrontierFactory.create(setting("fifo", 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxDepthWithHostFrontier() {
+        FrontierFactory.create(setting("host", 2));
+    }
+}
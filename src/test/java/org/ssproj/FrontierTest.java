@@ -0,0 +1,65 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FrontierTest {
+    private static Frontier create(String frontier) {
+        final TraverseSetting setting = new TraverseSetting();
+        setting.setFrontier(frontier);
+        return FrontierFactory.create(setting);
+    }
+
+    private static void toListKeepsPolledUrls(Frontier frontier) throws Exception {
+        final URL a = new URL("http://example.com/a");
+        final URL b = new URL("http://example.org/b");
+        frontier.put(a, 0);
+        frontier.put(b, 0);
+
+        final URL polled = frontier.poll(1, TimeUnit.SECONDS);
+        assertEquals(1, frontier.size());
+        assertEquals(new HashSet<>(Arrays.asList(a.toString(), b.toString())), strings(frontier));
+
+        frontier.done(polled);
+        assertEquals(1, frontier.toList().size());
+
+        frontier.finish();
+        final URL last = frontier.poll(1, TimeUnit.SECONDS);
+        assertFalse(frontier.isFinished());
+        frontier.done(last);
+        assertTrue(frontier.isFinished());
+        assertEquals(Collections.emptySet(), strings(frontier));
+    }
+
+    private static HashSet<String> strings(Frontier frontier) {
+        final HashSet<String> urls = new HashSet<>();
+        for (URL url : frontier.toList()) {
+            urls.add(url.toString());
+        }
+        return urls;
+    }
+
+    @Test
+    public void fifo() throws Exception {
+        toListKeepsPolledUrls(create("fifo"));
+    }
+
+    @Test
+    public void host() throws Exception {
+        toListKeepsPolledUrls(create("host"));
+    }
+
+    @Test
+    public void priority() throws Exception {
+        toListKeepsPolledUrls(create("priority"));
+    }
+}
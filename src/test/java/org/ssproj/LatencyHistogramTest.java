@@ -0,0 +1,80 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private static final long MICROS = 1000;
+
+    @Test
+    public void empty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10; micros++) {
+            histogram.record(micros * MICROS);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(55, histogram.getSum());
+        assertEquals(5.5, histogram.getMean(), 0);
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(9, histogram.getPercentile(90));
+        assertEquals(10, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        for (long micros = 16; micros < 1L << 40; micros = micros * 3 / 2 + 7) {
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(micros * MICROS);
+            histogram.record((micros + 1) * 2 * MICROS);
+            final long percentile = histogram.getPercentile(50);
+            assertTrue(micros + ": " + percentile, percentile >= micros);
+            assertTrue(micros + ": " + percentile, percentile - micros <= micros / 16);
+        }
+    }
+
+    @Test
+    public void percentileIsCappedAtMax() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000 * MICROS);
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1000, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5 * MICROS);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void add() {
+        final LatencyHistogram a = new LatencyHistogram();
+        final LatencyHistogram b = new LatencyHistogram();
+        a.record(2 * MICROS);
+        b.record(4 * MICROS);
+        b.record(3000 * MICROS);
+
+        final LatencyHistogram total = new LatencyHistogram();
+        total.add(a);
+        total.add(b);
+        assertEquals(3, total.getCount());
+        assertEquals(3006, total.getSum());
+        assertEquals(3000, total.getMax());
+        assertEquals(4, total.getPercentile(50));
+        assertEquals(1, a.getCount());
+    }
+}
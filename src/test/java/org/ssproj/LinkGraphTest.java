@@ -0,0 +1,154 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LinkGraphTest {
+    private File directory;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("link-graph").toFile();
+        this.file = new File(this.directory, "graph.bin");
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    private static class Recorder implements LinkGraphReader.Visitor {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void node(int id, String url) {
+            this.records.add("node " + id + " " + url);
+        }
+
+        @Override
+        public void links(int id, int[] links, int count) {
+            this.records.add("links " + id + " " + Arrays.toString(Arrays.copyOf(links, count)));
+        }
+
+        @Override
+        public void status(int id, int status) {
+            this.records.add("status " + id + " " + status);
+        }
+    }
+
+    private List<String> read(boolean urls) throws IOException {
+        final Recorder recorder = new Recorder();
+        try (LinkGraphReader reader = new LinkGraphReader(this.file)) {
+            reader.read(recorder, urls);
+        }
+        return recorder.records;
+    }
+
+    private static URL url(String path) throws IOException {
+        return new URL("http://example.com/" + path);
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        try (LinkGraphWriter writer = new LinkGraphWriter(this.file)) {
+            writer.links(url("a"), Arrays.asList(url("c"), url("b"), url("c")));
+            writer.status(url("a"), LinkGraphWriter.VISITED);
+            // a page visited again after a crash keeps its first links
+            writer.links(url("a"), Arrays.asList(url("d")));
+            writer.status(url("b"), LinkGraphWriter.FAILED);
+        }
+
+        assertEquals(Arrays.asList(
+                "node 0 http://example.com/a",
+                "node 1 http://example.com/c",
+                "node 2 http://example.com/b",
+                "links 0 [1, 2]",
+                "status 0 0",
+                "status 2 1"), read(true));
+        assertEquals("node 0 null", read(false).get(0));
+    }
+
+    @Test
+    public void idsBeyondOneVarintByte() throws Exception {
+        final List<URL> links = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            links.add(url(Integer.toString(i)));
+        }
+        try (LinkGraphWriter writer = new LinkGraphWriter(this.file)) {
+            writer.links(url("index"), links);
+            writer.status(links.get(299), LinkGraphWriter.SKIPPED);
+        }
+
+        final List<String> records = read(false);
+        final String linksRecord = records.get(records.size() - 2);
+        assertEquals(301, records.size() - 2);
+        assertTrue(linksRecord.startsWith("links 0 [1, 2, "));
+        assertTrue(linksRecord.endsWith(", 299, 300]"));
+        assertEquals("status 300 2", records.get(records.size() - 1));
+    }
+
+    @Test
+    public void truncatedRecordEndsGraph() throws Exception {
+        try (LinkGraphWriter writer = new LinkGraphWriter(this.file)) {
+            writer.links(url("a"), Arrays.asList(url("b")));
+            writer.status(url("a"), LinkGraphWriter.VISITED);
+        }
+        try (RandomAccessFile output = new RandomAccessFile(this.file, "rw")) {
+            output.setLength(output.length() - 1);
+        }
+
+        assertEquals(Arrays.asList(
+                "node 0 http://example.com/a",
+                "node 1 http://example.com/b",
+                "links 0 [1]"), read(true));
+    }
+
+    @Test
+    public void writeErrorDoesNotBlockCrawl() throws Exception {
+        final File full = new File("/dev/full");
+        if (!full.exists()) {
+            return;
+        }
+
+        final LinkGraphWriter writer = new LinkGraphWriter(full);
+        final Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 100000; i++) {
+                    writer.links(url("page/" + i), Arrays.asList(url("page/" + (i + 1))));
+                }
+            } catch (InterruptedException | IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        producer.start();
+        producer.join(30000);
+        assertFalse(producer.isAlive());
+        try {
+            writer.close();
+        } catch (IOException e) {
+            // the buffered rest cannot be written either
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws Exception {
+        Files.write(this.file.toPath(), new byte[] {0, 1, 2, 3, 4});
+        new LinkGraphReader(this.file).close();
+    }
+}
@@ -0,0 +1,46 @@
+package org.ssproj;
+
+import org.junit.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class PageReadinessTest {
+    private static final String HOST = "example.com";
+
+    /**
+     * @return a driver whose pages are always settled
+     */
+    private static WebDriver settledDriver() {
+        final Map<String, Object> state = new HashMap<>();
+        state.put("readyState", "complete");
+        state.put("pending", 0L);
+        state.put("images", 0L);
+        state.put("quiet", 1000L);
+        state.put("resources", 3L);
+        return (WebDriver) Proxy.newProxyInstance(PageReadinessTest.class.getClassLoader(),
+                new Class<?>[] {WebDriver.class, JavascriptExecutor.class},
+                (proxy, method, args) -> "executeScript".equals(method.getName()) ? state : null);
+    }
+
+    @Test
+    public void awaitLearnsEstimate() throws Exception {
+        final PageReadiness readiness = new PageReadiness(1, 0);
+        readiness.await(settledDriver(), new URL("http://" + HOST + "/"), 1000);
+        assertNotNull(readiness.getEstimate(HOST));
+    }
+
+    @Test
+    public void awaitSettledLeavesEstimate() throws Exception {
+        final PageReadiness readiness = new PageReadiness(1, 0);
+        readiness.awaitSettled(settledDriver(), new URL("http://" + HOST + "/"), 1000);
+        assertNull(readiness.getEstimate(HOST));
+    }
+}
@@ -0,0 +1,49 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PathPrefixTrieTest {
+    @Test
+    public void emptyTrieMatchesNothing() {
+        final PathPrefixTrie trie = new PathPrefixTrie();
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.matches("/"));
+        assertFalse(trie.matches(""));
+    }
+
+    @Test
+    public void matchesPrefixes() {
+        final PathPrefixTrie trie = new PathPrefixTrie();
+        trie.add("/admin");
+        trie.add("/docs/");
+        trie.add("/docs/");
+        assertEquals(2, trie.size());
+
+        assertTrue(trie.matches("/admin"));
+        assertTrue(trie.matches("/administrator"));
+        assertTrue(trie.matches("/docs/a.html"));
+        assertFalse(trie.matches("/docs"));
+        assertFalse(trie.matches("/adm"));
+        assertFalse(trie.matches("/blog/admin"));
+    }
+
+    @Test
+    public void emptyPrefixMatchesEverything() {
+        final PathPrefixTrie trie = new PathPrefixTrie();
+        trie.add("");
+        assertTrue(trie.matches(""));
+        assertTrue(trie.matches("/a"));
+    }
+
+    @Test
+    public void nonAsciiPaths() {
+        final PathPrefixTrie trie = new PathPrefixTrie();
+        trie.add("/ニュース/");
+        assertTrue(trie.matches("/ニュース/1.html"));
+        assertFalse(trie.matches("/ニュ"));
+    }
+}
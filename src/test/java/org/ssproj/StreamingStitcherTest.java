@@ -0,0 +1,86 @@
+package org.ssproj;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class StreamingStitcherTest {
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("stitcher").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteQuietly(this.directory);
+    }
+
+    private static BufferedImage segment(int width, int height, int rgb) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb + y);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    public void stitchesOverlappingSegments() throws IOException {
+        final File file = new File(this.directory, "page.png");
+        try (StreamingStitcher stitcher = new StreamingStitcher(file, 4, 25, 0)) {
+            stitcher.append(segment(4, 10, 0x100000), 0);
+            stitcher.append(segment(4, 10, 0x200000), 8);
+            stitcher.append(segment(4, 10, 0x300000), 15);
+        }
+
+        final BufferedImage image = ImageIO.read(file);
+        assertEquals(4, image.getWidth());
+        assertEquals(25, image.getHeight());
+        assertEquals(0x100000 + 7, image.getRGB(0, 7) & 0xffffff);
+        // rows written once are not overwritten by the next segment
+        assertEquals(0x100000 + 9, image.getRGB(0, 9) & 0xffffff);
+        assertEquals(0x200000 + 2, image.getRGB(0, 10) & 0xffffff);
+        assertEquals(0x300000 + 9, image.getRGB(3, 24) & 0xffffff);
+    }
+
+    @Test
+    public void splitsIntoParts() throws IOException {
+        final File file = new File(this.directory, "page.png");
+        final StreamingStitcher stitcher = new StreamingStitcher(file, 2, 25, 10);
+        stitcher.append(segment(2, 25, 0), 0);
+        stitcher.close();
+
+        assertEquals(3, stitcher.getFiles().size());
+        assertEquals(new File(this.directory, "page-3.png"), stitcher.getFiles().get(2));
+        assertEquals(5, ImageIO.read(stitcher.getFiles().get(2)).getHeight());
+    }
+
+    @Test
+    public void replacesHardLinkedCapture() throws IOException {
+        final File original = new File(this.directory, "original.png");
+        final byte[] content = {1, 2, 3};
+        Files.write(original.toPath(), content);
+        final File file = new File(this.directory, "page.png");
+        Files.createLink(file.toPath(), original.toPath());
+
+        try (StreamingStitcher stitcher = new StreamingStitcher(file, 2, 2, 0)) {
+            stitcher.append(segment(2, 2, 0), 0);
+        }
+
+        assertArrayEquals(content, Files.readAllBytes(original.toPath()));
+        assertEquals(2, ImageIO.read(file).getHeight());
+    }
+}
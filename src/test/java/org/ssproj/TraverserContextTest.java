@@ -0,0 +1,74 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TraverserContextTest {
+    private static final String A = "http://example.com/a";
+
+    @Test
+    public void postponeKeepsUrlCheckedByAnotherWorker() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        assertTrue(context.addCheck(new URL(A)));
+
+        assertTrue(context.postpone(new URL(A), 0));
+        assertTrue(context.containsCheck(A));
+        assertEquals(Collections.singletonList(new URL(A)), context.getQueue().toList());
+    }
+
+    @Test
+    public void postponeGivesUpAfterRetries() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        context.getSetting().setVisitRetries(1);
+
+        assertTrue(context.postpone(new URL(A), 0));
+        assertFalse(context.postpone(new URL(A), 0));
+    }
+
+    @Test
+    public void retryUnchecksUrl() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        assertTrue(context.addCheck(new URL(A)));
+
+        assertTrue(context.retry(new URL(A), 0));
+        assertFalse(context.containsCheck(A));
+        assertEquals(Collections.singletonList(new URL(A)), context.getQueue().toList());
+    }
+
+    @Test
+    public void releaseDoesNotCountRetry() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        context.getSetting().setVisitRetries(1);
+        assertTrue(context.addCheck(new URL(A)));
+
+        context.release(new URL(A), 0);
+        assertFalse(context.containsCheck(A));
+        assertEquals(Collections.singletonList(new URL(A)), context.getQueue().toList());
+
+        context.getQueue().poll(1, TimeUnit.SECONDS);
+        assertTrue(context.addCheck(new URL(A)));
+        assertTrue(context.retry(new URL(A), 0));
+    }
+
+    @Test
+    public void completeCheckForgetsRetries() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        context.getSetting().setVisitRetries(1);
+        assertTrue(context.addCheck(new URL(A)));
+        assertTrue(context.retry(new URL(A), 0));
+
+        context.getQueue().poll(1, TimeUnit.SECONDS);
+        assertTrue(context.addCheck(new URL(A)));
+        context.completeCheck(new URL(A));
+
+        // a later visit of the same url, e.g. after a resume, starts with all its retries
+        assertTrue(context.retry(new URL(A), 0));
+    }
+}
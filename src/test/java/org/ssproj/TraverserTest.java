@@ -0,0 +1,101 @@
+package org.ssproj;
+
+import org.junit.Test;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class TraverserTest {
+    private static final String HOST = "example.com";
+
+    /**
+     * A browser whose pages are settled as soon as they are loaded. Calls returning another
+     * selenium interface (options, window, tab switching) are answered by proxies as well.
+     */
+    private static WebDriver fakeDriver() {
+        final Map<String, Object> state = new HashMap<>();
+        state.put("readyState", "complete");
+        state.put("pending", 0L);
+        state.put("images", 0L);
+        state.put("quiet", 1000L);
+        state.put("resources", 3L);
+        return (WebDriver) fake(new Class<?>[] {WebDriver.class, JavascriptExecutor.class}, state);
+    }
+
+    private static Object fake(Class<?>[] interfaces, Map<String, Object> state) {
+        return Proxy.newProxyInstance(TraverserTest.class.getClassLoader(), interfaces, (proxy, method, args) -> {
+            final Class<?> type = method.getReturnType();
+            if ("executeScript".equals(method.getName())) {
+                return state;
+            } else if (type == WebDriver.class) {
+                return proxy;
+            } else if (type == Dimension.class) {
+                return new Dimension(800, 600);
+            } else if (type == String.class) {
+                return "main";
+            } else if (type == Set.class) {
+                return Collections.singleton("main");
+            } else if (type.isInterface()) {
+                return fake(new Class<?>[] {type}, state);
+            } else if (type == boolean.class) {
+                return false;
+            }
+            return null;
+        });
+    }
+
+    private static class FakeTraverser extends Traverser {
+        FakeTraverser(TraverserContext context) {
+            super(context);
+        }
+
+        @Override
+        protected WebDriver startDriver() {
+            return fakeDriver();
+        }
+
+        @Override
+        protected void saveScreenShot() {
+        }
+    }
+
+    @Test
+    public void captureTrainsReadinessEstimate() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        context.getSetting().setReadiness("adaptive");
+        context.getSetting().setReadinessPollInterval(1);
+        context.getSetting().setReadinessQuietPeriod(0);
+        context.setInitialSleep(1000);
+        context.setSleep(1000);
+
+        try (Traverser traverser = new FakeTraverser(context)) {
+            traverser.visit(new URL("http://" + HOST + "/"));
+        }
+        assertNotNull(context.getReadiness().getEstimate(HOST));
+    }
+
+    @Test
+    public void restartedBrowserGetsInitialSleep() throws Exception {
+        final TraverserContext context = new TraverserContext();
+        context.getSetting().setDriverRecyclePages(1);
+        context.setInitialSleep(300);
+        context.setSleep(0);
+
+        try (Traverser traverser = new FakeTraverser(context)) {
+            traverser.visit(new URL("http://" + HOST + "/a"));
+            final long start = System.currentTimeMillis();
+            traverser.visit(new URL("http://" + HOST + "/b"));
+            assertTrue(System.currentTimeMillis() - start >= 300);
+        }
+    }
+}
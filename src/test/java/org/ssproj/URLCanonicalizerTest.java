@@ -0,0 +1,77 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class URLCanonicalizerTest {
+    private static String apply(URLCanonicalizer canonicalizer, String url) throws Exception {
+        return canonicalizer.apply(new URL(url)).toString();
+    }
+
+    @Test
+    public void defaults() throws Exception {
+        final URLCanonicalizer canonicalizer = new URLCanonicalizer(new CanonicalizationSetting());
+        assertEquals("http://example.com/a", apply(canonicalizer, "http://EXAMPLE.com:80/a"));
+        assertEquals("https://example.com:8443/a", apply(canonicalizer, "https://example.com:8443/a"));
+        assertEquals("http://example.com/", apply(canonicalizer, "http://example.com"));
+        assertEquals("http://example.com/a/b.html", apply(canonicalizer, "http://example.com/a;jsessionid=123/b.html;JSESSIONID=456"));
+        assertEquals("http://example.com/a;v=1", apply(canonicalizer, "http://example.com/a;v=1"));
+        assertEquals("http://example.com/a?b=2&a=1", apply(canonicalizer, "http://example.com/a?b=2&a=1#top"));
+    }
+
+    @Test
+    public void returnsCanonicalUrlItself() throws Exception {
+        final URLCanonicalizer canonicalizer = new URLCanonicalizer(new CanonicalizationSetting());
+        final URL url = new URL("http://example.com/a?x=1");
+        assertSame(url, canonicalizer.apply(url));
+    }
+
+    @Test
+    public void queryParameters() throws Exception {
+        final CanonicalizationSetting setting = new CanonicalizationSetting();
+        setting.setDropQueryParameters(Arrays.asList("utm_.*", "fbclid"));
+        setting.setSortQueryParameters(true);
+        final URLCanonicalizer canonicalizer = new URLCanonicalizer(setting);
+        assertEquals("http://example.com/a?a=1&b=2&b=1", apply(canonicalizer, "http://example.com/a?b=2&utm_source=x&a=1&FBCLID=y&b=1"));
+        assertEquals("http://example.com/a", apply(canonicalizer, "http://example.com/a?utm_medium=mail"));
+    }
+
+    @Test
+    public void trailingSlash() throws Exception {
+        final CanonicalizationSetting setting = new CanonicalizationSetting();
+        setting.setTrailingSlash("add");
+        URLCanonicalizer canonicalizer = new URLCanonicalizer(setting);
+        assertEquals("http://example.com/a/", apply(canonicalizer, "http://example.com/a"));
+        assertEquals("http://example.com/a/b.html", apply(canonicalizer, "http://example.com/a/b.html"));
+
+        setting.setTrailingSlash("remove");
+        canonicalizer = new URLCanonicalizer(setting);
+        assertEquals("http://example.com/a", apply(canonicalizer, "http://example.com/a//"));
+        assertEquals("http://example.com/", apply(canonicalizer, "http://example.com/"));
+    }
+
+    @Test
+    public void keepsCaseWhenConfigured() throws Exception {
+        final CanonicalizationSetting setting = new CanonicalizationSetting();
+        setting.setLowercaseHost(false);
+        setting.setStripDefaultPort(false);
+        setting.setSessionIdParameters(Collections.<String>emptyList());
+        final URLCanonicalizer canonicalizer = new URLCanonicalizer(setting);
+        assertEquals("http://EXAMPLE.com:80/a;jsessionid=1", apply(canonicalizer, "http://EXAMPLE.com:80/a;jsessionid=1"));
+    }
+
+    @Test
+    public void countsAvoidedLoadOncePerUrl() throws Exception {
+        final URLCanonicalizer canonicalizer = new URLCanonicalizer(new CanonicalizationSetting());
+        canonicalizer.avoided(new URL("http://EXAMPLE.com/a"));
+        canonicalizer.avoided(new URL("http://EXAMPLE.com/a"));
+        canonicalizer.avoided(new URL("http://example.com:80/a"));
+        assertEquals(2, canonicalizer.getAvoidedLoads());
+    }
+}
@@ -0,0 +1,129 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class URLFilterTest {
+    private static final List<String> NONE = Collections.emptyList();
+
+    private static URLFilter filter(List<String> domains, List<String> includePaths, List<String> excludePaths, List<String> allowSuffixes) {
+        return new URLFilter(domains, includePaths, excludePaths, allowSuffixes);
+    }
+
+    private static URLFilter domains(String... domains) {
+        return filter(Arrays.asList(domains), NONE, NONE, NONE);
+    }
+
+    private static String reject(URLFilter filter, String url) throws Exception {
+        return filter.reject(new URL(url));
+    }
+
+    @Test
+    public void emptyDomainsAllowNoUrl() throws Exception {
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter(NONE, NONE, NONE, NONE), "http://example.com/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter(null, null, null, null), "http://example.com/"));
+    }
+
+    @Test
+    public void emptyPathsAndSuffixesAllowEveryUrl() throws Exception {
+        for (List<String> empty : Arrays.asList(NONE, null)) {
+            final URLFilter filter = filter(Collections.singletonList("example.com"), empty, empty, empty);
+            assertNull(reject(filter, "http://example.com/"));
+            assertNull(reject(filter, "http://example.com/a/b.pdf"));
+            assertFalse(filter.excludes("/a"));
+            assertTrue(filter.allowsSuffix("/a/b.pdf"));
+        }
+    }
+
+    @Test
+    public void plainDomains() throws Exception {
+        final URLFilter filter = domains("example.com", "example.org:8080", "example.org:8443");
+        assertNull(reject(filter, "http://example.com/"));
+        assertNull(reject(filter, "http://example.com:8080/"));
+        assertNull(reject(filter, "http://example.org:8080/"));
+        assertNull(reject(filter, "https://example.org:8443/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter, "http://example.org/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter, "http://example.org:9090/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter, "http://www.example.com/"));
+    }
+
+    @Test
+    public void portlessRuleWinsOverPorts() throws Exception {
+        final URLFilter filter = domains("example.com:8080", "example.com");
+        assertNull(reject(filter, "http://example.com:9090/"));
+    }
+
+    @Test
+    public void globAndRegexDomains() throws Exception {
+        final URLFilter filter = domains("*.example.com", "regex:(www|cdn)\\.example\\.org", "host?.example.net");
+        assertNull(reject(filter, "http://www.example.com/"));
+        assertNull(reject(filter, "http://a.b.example.com:8080/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter, "http://example.com/"));
+        assertNull(reject(filter, "http://cdn.example.org/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter, "http://img.example.org/"));
+        assertNull(reject(filter, "http://host1.example.net/"));
+        assertEquals(URLFilter.NOT_IN_DOMAINS, reject(filter, "http://host10.example.net/"));
+    }
+
+    @Test
+    public void excludePaths() throws Exception {
+        final URLFilter filter = filter(Collections.singletonList("example.com"), NONE,
+                Arrays.asList("/admin", "/*/private", "regex:/\\d+/"), NONE);
+        assertEquals(URLFilter.EXCLUDED_BY_PATHS, reject(filter, "http://example.com/admin/users"));
+        assertEquals(URLFilter.EXCLUDED_BY_PATHS, reject(filter, "http://example.com/a/private/b"));
+        assertEquals(URLFilter.EXCLUDED_BY_PATHS, reject(filter, "http://example.com/2024/"));
+        assertNull(reject(filter, "http://example.com/public/admin"));
+        assertNull(reject(filter, "http://example.com/a2024/"));
+        assertTrue(filter.excludes("/admin"));
+    }
+
+    @Test
+    public void includePaths() throws Exception {
+        final URLFilter filter = filter(Collections.singletonList("example.com"), Arrays.asList("/docs/", "/*/news"),
+                Collections.singletonList("/docs/draft"), NONE);
+        assertNull(reject(filter, "http://example.com/docs/a.html"));
+        assertNull(reject(filter, "http://example.com/ja/news/1.html"));
+        assertEquals(URLFilter.NOT_INCLUDED_BY_PATHS, reject(filter, "http://example.com/blog/"));
+        assertEquals(URLFilter.NOT_INCLUDED_BY_PATHS, reject(filter, "http://example.com/docs"));
+        // exclusion is checked first
+        assertEquals(URLFilter.EXCLUDED_BY_PATHS, reject(filter, "http://example.com/docs/draft/a.html"));
+    }
+
+    @Test
+    public void suffixes() throws Exception {
+        final URLFilter filter = filter(Collections.singletonList("example.com"), NONE, NONE, Arrays.asList(".html", "/"));
+        assertNull(reject(filter, "http://example.com/a.html"));
+        assertNull(reject(filter, "http://example.com/a/"));
+        assertNull(reject(filter, "http://example.com/"));
+        assertEquals(URLFilter.EXCLUDED_BY_SUFFIXES, reject(filter, "http://example.com/a.pdf"));
+        assertEquals(URLFilter.EXCLUDED_BY_SUFFIXES, reject(filter, "http://example.com/a"));
+        assertEquals(URLFilter.EXCLUDED_BY_SUFFIXES, reject(filter, "http://example.com/a.htm"));
+        // a dot in a directory name is not a suffix
+        assertNull(reject(filter, "http://example.com/v1.2/"));
+    }
+
+    @Test
+    public void settingRebuildsFiltersWhenRulesChange() throws Exception {
+        final TraverseSetting setting = new TraverseSetting();
+        setting.setAccessibleDomains(Collections.singletonList("example.com"));
+        final URL url = new URL("http://example.com/admin/");
+        assertTrue(setting.allowsForAccess(url));
+        assertFalse(setting.containsExcludePaths(url));
+
+        setting.setExcludePaths(Collections.singletonList("/admin"));
+        assertFalse(setting.allowsForAccess(url));
+        assertTrue(setting.containsExcludePaths(url));
+
+        setting.setExcludePaths(null);
+        assertTrue(setting.allowsForAccess(url));
+    }
+}
@@ -0,0 +1,35 @@
+package org.ssproj;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ViewportTest {
+    @Test
+    public void parse() {
+        final Viewport viewport = Viewport.parse("375x667");
+        assertEquals(375, viewport.getWidth());
+        assertEquals(667, viewport.getHeight());
+        assertEquals("@375x667", viewport.getSuffix());
+    }
+
+    @Test
+    public void parseIgnoresCaseAndSpaces() {
+        assertEquals(new Viewport(1280, 800), Viewport.parse(" 1280 X 800 "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingSeparator() {
+        Viewport.parse("1280");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonNumbers() {
+        Viewport.parse("widex800");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptySize() {
+        Viewport.parse("0x800");
+    }
+}